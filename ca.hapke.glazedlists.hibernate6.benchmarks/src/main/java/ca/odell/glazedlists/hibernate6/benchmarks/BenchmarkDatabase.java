@@ -0,0 +1,75 @@
+package ca.odell.glazedlists.hibernate6.benchmarks;
+
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.mapping.PluralAttributeMapping;
+
+/**
+ * An in-memory HSQLDB database with the {@link Holder} mappings.
+ *
+ * @author Nathan Hapke
+ */
+final class BenchmarkDatabase {
+
+	/** the list implementations a holder can be mapped with */
+	static final String EVENT_LIST = "PersistentEventList";
+	static final String LIST = "PersistentList";
+
+	private BenchmarkDatabase() {
+	}
+
+	static SessionFactory open(String name) {
+		final StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+				.applySetting("hibernate.connection.driver_class", "org.hsqldb.jdbcDriver")
+				.applySetting("hibernate.connection.url", "jdbc:hsqldb:mem:" + name)
+				.applySetting("hibernate.connection.username", "sa")
+				.applySetting("hibernate.connection.password", "")
+				.applySetting("hibernate.connection.pool_size", "2")
+				.applySetting("hibernate.hbm2ddl.auto", "create-drop")
+				.applySetting("hibernate.jdbc.batch_size", "100")
+				.build();
+		try {
+			return new MetadataSources(registry).addResource("benchmark.hbm.xml").buildMetadata()
+					.buildSessionFactory();
+		} catch (RuntimeException e) {
+			StandardServiceRegistryBuilder.destroy(registry);
+			throw e;
+		}
+	}
+
+	static Class<? extends Holder> holderClass(String mapping) {
+		return EVENT_LIST.equals(mapping) ? EventListHolder.class : ListHolder.class;
+	}
+
+	/**
+	 * @return the mapping of the holder's list, as Hibernate passes it to
+	 *         <code>injectLoadedState</code>
+	 */
+	static PluralAttributeMapping valuesMapping(SessionFactory sessionFactory, String mapping) {
+		final String role = holderClass(mapping).getName() + ".values";
+		return sessionFactory.unwrap(SessionFactoryImplementor.class).getRuntimeMetamodels().getMappingMetamodel()
+				.getCollectionDescriptor(role).getAttributeMapping();
+	}
+
+	/**
+	 * Stores a holder of the given mapping with the given values.
+	 *
+	 * @return the id of the holder
+	 */
+	static Long store(SessionFactory sessionFactory, String mapping, List<String> values) {
+		try (Session session = sessionFactory.openSession()) {
+			session.beginTransaction();
+			final Holder holder = EVENT_LIST.equals(mapping) ? new EventListHolder() : new ListHolder();
+			holder.getValues().addAll(values);
+			session.persist(holder);
+			session.getTransaction().commit();
+			return holder.getId();
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package ca.odell.glazedlists.hibernate6.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates the element lists the benchmarks work on. Every element is a
+ * distinct object, as entities would be, so identity comparisons don't
+ * benefit from the Integer cache.
+ *
+ * @author Nathan Hapke
+ */
+final class Elements {
+
+	private Elements() {
+	}
+
+	@SuppressWarnings("deprecation")
+	static List<Integer> create(int size) {
+		final List<Integer> result = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			result.add(new Integer(i));
+		}
+		return result;
+	}
+
+	static List<Integer> everyOther(List<Integer> elements) {
+		final List<Integer> result = new ArrayList<>(elements.size() / 2 + 1);
+		for (int i = 0; i < elements.size(); i += 2) {
+			result.add(elements.get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * @return a copy of the elements, with every <code>period</code>th one
+	 *         replaced by a new object
+	 */
+	@SuppressWarnings("deprecation")
+	static List<Integer> edit(List<Integer> elements, int period) {
+		final List<Integer> result = new ArrayList<>(elements);
+		for (int i = period / 2; i < result.size(); i += period) {
+			result.set(i, new Integer(-i));
+		}
+		if (result.size() < period && !result.isEmpty()) {
+			result.set(result.size() / 2, new Integer(-1));
+		}
+		return result;
+	}
+
+	/**
+	 * @return a copy of the strings, with every <code>period</code>th one
+	 *         replaced by a new string
+	 */
+	static List<String> editStrings(List<String> elements, int period) {
+		final List<String> result = new ArrayList<>(elements);
+		for (int i = period / 2; i < result.size(); i += period) {
+			result.set(i, "edited " + i);
+		}
+		if (result.size() < period && !result.isEmpty()) {
+			result.set(result.size() / 2, "edited");
+		}
+		return result;
+	}
+
+	static List<String> createStrings(int size) {
+		final List<String> result = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			result.add("element " + i);
+		}
+		return result;
+	}
+}
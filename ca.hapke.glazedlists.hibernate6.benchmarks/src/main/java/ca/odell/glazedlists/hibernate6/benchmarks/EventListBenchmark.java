@@ -0,0 +1,116 @@
+package ca.odell.glazedlists.hibernate6.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.odell.glazedlists.hibernate6.CanUpdateAllElements;
+import ca.odell.glazedlists.hibernate6.UnderlyingPersistentEventList;
+
+/**
+ * Measures the bulk operations of {@link UnderlyingPersistentEventList}
+ * against an {@link ArrayList} baseline. The list is rebuilt before each
+ * invocation, so every operation starts from the same contents.
+ * <p>
+ * {@link ArrayList} has no <code>updateAll</code>; its baseline is
+ * <code>clear</code> followed by <code>addAll</code>, which is what
+ * <code>PersistentEventListType.replaceElements</code> does for such lists.
+ *
+ * @author Nathan Hapke
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class EventListBenchmark {
+
+	@Param({ "10", "1000", "100000", "1000000" })
+	int size;
+
+	@Param({ "UnderlyingPersistentEventList", "ArrayList" })
+	String list;
+
+	/** the initial contents */
+	private List<Integer> elements;
+
+	/** every other element */
+	private Set<Integer> half;
+
+	/** the initial contents with one in a hundred elements replaced */
+	private List<Integer> edited;
+
+	private List<Integer> target;
+
+	@Setup(Level.Trial)
+	public void createElements() {
+		elements = Elements.create(size);
+		half = new HashSet<>(Elements.everyOther(elements));
+		edited = Elements.edit(elements, 100);
+	}
+
+	@Setup(Level.Invocation)
+	public void fillTarget() {
+		target = createList();
+		target.addAll(elements);
+	}
+
+	private List<Integer> createList() {
+		if ("ArrayList".equals(list)) {
+			return new ArrayList<>();
+		}
+		return new UnderlyingPersistentEventList<>();
+	}
+
+	@Benchmark
+	public List<Integer> add() {
+		final List<Integer> result = createList();
+		for (int i = 0; i < elements.size(); i++) {
+			result.add(elements.get(i));
+		}
+		return result;
+	}
+
+	@Benchmark
+	public List<Integer> addAll() {
+		final List<Integer> result = createList();
+		result.addAll(elements);
+		return result;
+	}
+
+	@Benchmark
+	public boolean removeAll() {
+		return target.removeAll(half);
+	}
+
+	@Benchmark
+	public boolean retainAll() {
+		return target.retainAll(half);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Benchmark
+	public boolean updateAll() {
+		if (target instanceof CanUpdateAllElements) {
+			return ((CanUpdateAllElements<Integer>) target).updateAll(edited);
+		}
+		target.clear();
+		return target.addAll(edited);
+	}
+}
@@ -0,0 +1,15 @@
+package ca.odell.glazedlists.hibernate6.benchmarks;
+
+import ca.odell.glazedlists.hibernate6.UnderlyingPersistentEventList;
+
+/**
+ * A {@link Holder} whose list is mapped with the PersistentEventListType.
+ *
+ * @author Nathan Hapke
+ */
+public class EventListHolder extends Holder {
+
+	public EventListHolder() {
+		setValues(new UnderlyingPersistentEventList<>());
+	}
+}
@@ -0,0 +1,100 @@
+package ca.odell.glazedlists.hibernate6.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the flush after a single change to a loaded collection: Hibernate's
+ * dirty check of the collection against its snapshot, and the statements it
+ * writes. Each iteration loads the collection in a new session, changes it,
+ * flushes once, and rolls back, so the database stays the same.
+ * <p>
+ * Loading a large collection takes much longer than flushing it, so each
+ * iteration is a single measured flush.
+ *
+ * @author Nathan Hapke
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 30)
+@Fork(1)
+public class FlushBenchmark {
+
+	@Param({ "10", "1000", "100000", "1000000" })
+	int size;
+
+	@Param({ BenchmarkDatabase.EVENT_LIST, BenchmarkDatabase.LIST })
+	String mapping;
+
+	/** set replaces the middle element, append and insert add one at the end or middle */
+	@Param({ "set", "append", "insert" })
+	String change;
+
+	private SessionFactory sessionFactory;
+
+	private Long holderId;
+
+	private Session session;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		sessionFactory = BenchmarkDatabase.open("flush");
+		holderId = BenchmarkDatabase.store(sessionFactory, mapping, Elements.createStrings(size));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		sessionFactory.close();
+	}
+
+	@Setup(Level.Iteration)
+	public void loadAndChange() {
+		session = sessionFactory.openSession();
+		session.beginTransaction();
+		final Holder holder = session.get(BenchmarkDatabase.holderClass(mapping), holderId);
+		final List<String> values = holder.getValues();
+		Hibernate.initialize(values);
+
+		final int middle = values.size() / 2;
+		switch (change) {
+		case "set":
+			values.set(middle, "changed");
+			break;
+		case "append":
+			values.add("appended");
+			break;
+		default:
+			values.add(middle, "inserted");
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void rollback() {
+		session.getTransaction().rollback();
+		session.close();
+	}
+
+	@Benchmark
+	public void flush() {
+		session.flush();
+	}
+}
@@ -0,0 +1,31 @@
+package ca.odell.glazedlists.hibernate6.benchmarks;
+
+import java.util.List;
+
+/**
+ * An entity owning a list of strings.
+ *
+ * @author Nathan Hapke
+ */
+public abstract class Holder {
+
+	private Long id;
+
+	private List<String> values;
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public List<String> getValues() {
+		return values;
+	}
+
+	public void setValues(List<String> values) {
+		this.values = values;
+	}
+}
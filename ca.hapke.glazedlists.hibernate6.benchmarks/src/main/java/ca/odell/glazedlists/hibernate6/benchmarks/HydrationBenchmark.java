@@ -0,0 +1,94 @@
+package ca.odell.glazedlists.hibernate6.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.collection.spi.PersistentList;
+import org.hibernate.metamodel.mapping.PluralAttributeMapping;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.hibernate6.PersistentEventList;
+import ca.odell.glazedlists.hibernate6.PersistentEventListFactory;
+
+/**
+ * Measures how long a collection takes to take over the elements Hibernate
+ * has read from the database, through <code>injectLoadedState</code>, without
+ * the JDBC work before it.
+ * <p>
+ * <code>PersistentEventListAddAll</code> wraps a {@link BasicEventList},
+ * which receives the elements through <code>addAll</code>, as every
+ * PersistentEventList did before the silent hydration of
+ * UnderlyingPersistentEventList. {@link PersistentList} is the baseline.
+ *
+ * @author Nathan Hapke
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HydrationBenchmark {
+
+	@Param({ "10", "1000", "100000", "1000000" })
+	int size;
+
+	@Param({ "PersistentEventList", "PersistentEventListAddAll", "PersistentList" })
+	String collection;
+
+	private SessionFactory sessionFactory;
+
+	private PluralAttributeMapping mapping;
+
+	private List<String> loadingState;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		sessionFactory = BenchmarkDatabase.open("hydration");
+		final boolean eventList = collection.startsWith(BenchmarkDatabase.EVENT_LIST);
+		mapping = BenchmarkDatabase.valuesMapping(sessionFactory,
+				eventList ? BenchmarkDatabase.EVENT_LIST : BenchmarkDatabase.LIST);
+		loadingState = Elements.createStrings(size);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		sessionFactory.close();
+	}
+
+	@SuppressWarnings("unchecked")
+	private PersistentCollection<String> createCollection() {
+		switch (collection) {
+		case "PersistentEventList":
+			return new PersistentEventList<String>(null, PersistentEventListFactory.DEFAULT);
+		case "PersistentEventListAddAll":
+			return new PersistentEventList<String>(null, new BasicEventList<String>());
+		default:
+			return new PersistentList<String>(null);
+		}
+	}
+
+	@Benchmark
+	public PersistentCollection<String> injectLoadedState() {
+		final PersistentCollection<String> result = createCollection();
+		result.beginRead();
+		result.injectLoadedState(mapping, loadingState);
+		result.endRead();
+		return result;
+	}
+}
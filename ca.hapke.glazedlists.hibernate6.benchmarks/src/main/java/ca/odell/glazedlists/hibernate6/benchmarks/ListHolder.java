@@ -0,0 +1,15 @@
+package ca.odell.glazedlists.hibernate6.benchmarks;
+
+import java.util.ArrayList;
+
+/**
+ * A {@link Holder} whose list is mapped as a plain Hibernate list.
+ *
+ * @author Nathan Hapke
+ */
+public class ListHolder extends Holder {
+
+	public ListHolder() {
+		setValues(new ArrayList<>());
+	}
+}
@@ -0,0 +1,100 @@
+package ca.odell.glazedlists.hibernate6.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.odell.glazedlists.hibernate6.PersistentEventListType;
+
+/**
+ * Measures the merge of a detached holder whose list has one in a hundred
+ * elements changed, into the loaded holder of a session. For the
+ * PersistentEventList mapping, Hibernate's merge calls
+ * {@link PersistentEventListType#replaceElements} with the collection's
+ * persister and the session, which takes over the differences with
+ * <code>updateAll</code>. Hibernate's own PersistentList is the baseline; it
+ * is cleared and refilled.
+ * <p>
+ * Each iteration loads the holder in a new session, merges once, and rolls
+ * back, so the database stays the same.
+ *
+ * @author Nathan Hapke
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 30)
+@Fork(1)
+public class ReplaceElementsBenchmark {
+
+	@Param({ "10", "1000", "100000", "1000000" })
+	int size;
+
+	@Param({ BenchmarkDatabase.EVENT_LIST, BenchmarkDatabase.LIST })
+	String mapping;
+
+	private SessionFactory sessionFactory;
+
+	private Long holderId;
+
+	/** the values of the detached holder */
+	private List<String> edited;
+
+	private Session session;
+
+	/** the detached holder with the changed elements */
+	private Holder detached;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		sessionFactory = BenchmarkDatabase.open("replace");
+		final List<String> values = Elements.createStrings(size);
+		holderId = BenchmarkDatabase.store(sessionFactory, mapping, values);
+		edited = Elements.editStrings(values, 100);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		sessionFactory.close();
+	}
+
+	@Setup(Level.Iteration)
+	public void loadAndDetach() throws ReflectiveOperationException {
+		session = sessionFactory.openSession();
+		session.beginTransaction();
+		final Class<? extends Holder> holderClass = BenchmarkDatabase.holderClass(mapping);
+		Hibernate.initialize(session.get(holderClass, holderId).getValues());
+
+		detached = holderClass.getConstructor().newInstance();
+		detached.setId(holderId);
+		detached.getValues().addAll(edited);
+	}
+
+	@TearDown(Level.Iteration)
+	public void rollback() {
+		session.getTransaction().rollback();
+		session.close();
+	}
+
+	@Benchmark
+	public Object merge() {
+		return session.merge(detached);
+	}
+}
@@ -0,0 +1,214 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.event.ListEvent;
+import ca.odell.glazedlists.event.ListEventListener;
+import ca.odell.glazedlists.util.concurrent.Lock;
+
+/**
+ * Delivers the changes of an EventList to one {@link AsyncListEventListener}
+ * on an executor, so that a slow listener, such as one that updates a UI or a
+ * web socket, doesn't hold the list's write lock, or a Hibernate flush. While
+ * the lock is held, each ListEvent is only copied into a
+ * {@link ListChangeBatch}, which costs time in the number of changes, and
+ * queued.
+ * <p>
+ * The queue is bounded. When it is full, the queued batches are coalesced
+ * into one reset batch with all elements of the list, so a listener that
+ * falls behind catches up in one step, and memory stays bounded. The first
+ * batch is a reset as well, with the elements the list had when the
+ * dispatcher was created.
+ * <p>
+ * The batches are delivered in order, one at a time, by one task on the
+ * executor at a time. Any executor will do: a shared pool, a single thread,
+ * or a virtual thread per task on Java 21.
+ *
+ * <pre>
+ * AsyncListEventDispatcher&lt;User&gt; dispatcher = users.addAsyncListEventListener(
+ *         batch -&gt; socket.send(batch), executor, 100);
+ * </pre>
+ *
+ * @author Nathan Hapke
+ */
+public final class AsyncListEventDispatcher<E> implements ListEventListener<E> {
+
+	private static final Logger LOG = Logger.getLogger(AsyncListEventDispatcher.class.getName());
+
+	private final EventList<E> source;
+
+	private final AsyncListEventListener<E> listener;
+
+	private final Executor executor;
+
+	private final int capacity;
+
+	/** the batches not delivered yet, guarded by this */
+	private final ArrayDeque<ListChangeBatch<E>> queue = new ArrayDeque<ListChangeBatch<E>>();
+
+	/** whether a task is delivering the queue, guarded by this */
+	private boolean draining = false;
+
+	/** guarded by this */
+	private boolean disposed = false;
+
+	private final LongAdder delivered = new LongAdder();
+
+	private final LongAdder coalesced = new LongAdder();
+
+	private volatile long lagNanos = 0;
+
+	private volatile long maxLagNanos = 0;
+
+	/**
+	 * Creates a dispatcher and starts listening to the list.
+	 *
+	 * @param source   the list
+	 * @param listener the listener that receives the batches
+	 * @param executor runs the deliveries
+	 * @param capacity the number of batches queued before they are coalesced
+	 */
+	public AsyncListEventDispatcher(EventList<E> source, AsyncListEventListener<E> listener, Executor executor,
+			int capacity) {
+		if (source == null || listener == null || executor == null) {
+			throw new IllegalArgumentException("List, listener and executor must not be null");
+		}
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		this.source = source;
+		this.listener = listener;
+		this.executor = executor;
+		this.capacity = capacity;
+
+		// no change may come between the first batch and the next
+		final Lock lock = source.getReadWriteLock().readLock();
+		lock.lock();
+		try {
+			enqueue(ListChangeBatch.reset(source, System.nanoTime()));
+			source.addListEventListener(this);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Copies and queues the changes. Called while the list's write lock is
+	 * held.
+	 */
+	@Override
+	public void listChanged(ListEvent<E> listChanges) {
+		enqueue(ListChangeBatch.copyOf(listChanges));
+	}
+
+	private void enqueue(ListChangeBatch<E> batch) {
+		synchronized (this) {
+			if (disposed) {
+				return;
+			}
+			if (queue.size() >= capacity) {
+				// the list already holds every queued change
+				final long oldest = queue.peek().getCreatedNanos();
+				coalesced.add(queue.size() + 1);
+				queue.clear();
+				batch = ListChangeBatch.reset(source, oldest);
+			}
+			queue.add(batch);
+			if (draining) {
+				return;
+			}
+			draining = true;
+		}
+		try {
+			executor.execute(this::drain);
+		} catch (RejectedExecutionException e) {
+			synchronized (this) {
+				draining = false;
+			}
+			LOG.log(Level.WARNING, "Cannot deliver the changes of the list", e);
+		}
+	}
+
+	/**
+	 * Delivers the queued batches until the queue is empty.
+	 */
+	private void drain() {
+		while (true) {
+			final ListChangeBatch<E> batch;
+			synchronized (this) {
+				batch = queue.poll();
+				if (batch == null) {
+					draining = false;
+					return;
+				}
+			}
+			final long lag = System.nanoTime() - batch.getCreatedNanos();
+			lagNanos = lag;
+			if (lag > maxLagNanos) {
+				maxLagNanos = lag;
+			}
+			try {
+				listener.listChanged(batch);
+			} catch (RuntimeException e) {
+				LOG.log(Level.WARNING, "Listener failed on " + batch, e);
+			}
+			delivered.increment();
+		}
+	}
+
+	/**
+	 * @return the number of batches waiting to be delivered
+	 */
+	public synchronized int getQueueSize() {
+		return queue.size();
+	}
+
+	/**
+	 * @return the number of batches delivered
+	 */
+	public long getDeliveredBatches() {
+		return delivered.sum();
+	}
+
+	/**
+	 * @return the number of batches that were coalesced into resets, including
+	 *         the changes that caused the overflow
+	 */
+	public long getCoalescedBatches() {
+		return coalesced.sum();
+	}
+
+	/**
+	 * @return the time between the last delivered change and its delivery, in
+	 *         nanoseconds
+	 */
+	public long getLagNanos() {
+		return lagNanos;
+	}
+
+	/**
+	 * @return the longest time between a change and its delivery, in
+	 *         nanoseconds
+	 */
+	public long getMaxLagNanos() {
+		return maxLagNanos;
+	}
+
+	/**
+	 * Stops listening to the list, and drops the batches not delivered yet. A
+	 * batch that is being delivered is finished.
+	 */
+	public void dispose() {
+		source.removeListEventListener(this);
+		synchronized (this) {
+			disposed = true;
+			queue.clear();
+		}
+	}
+}
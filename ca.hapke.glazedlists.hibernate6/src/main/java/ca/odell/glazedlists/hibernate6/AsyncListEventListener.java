@@ -0,0 +1,19 @@
+package ca.odell.glazedlists.hibernate6;
+
+/**
+ * Receives the changes of an EventList on an executor thread, through an
+ * {@link AsyncListEventDispatcher}, rather than on the thread that changed
+ * it.
+ *
+ * @author Nathan Hapke
+ */
+@FunctionalInterface
+public interface AsyncListEventListener<E> {
+
+	/**
+	 * Called with the batches in the order the changes were made, one at a
+	 * time. No lock of the list is held, and the list may have changed again
+	 * since; the batch holds the elements it needs.
+	 */
+	void listChanged(ListChangeBatch<E> batch);
+}
@@ -0,0 +1,15 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.Collection;
+
+/**
+ * An EventList that can take over the elements Hibernate loaded from the
+ * database without publishing a ListEvent, since initialization is meant to
+ * be transparent to listeners.
+ *
+ * @author Nathan Hapke
+ */
+public interface CanHydrateElements<E> {
+
+	public void hydrate(Collection<? extends E> values);
+}
@@ -0,0 +1,169 @@
+/* Glazed Lists                                                 (c) 2003-2007 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.event.ListEventAssembler;
+import ca.odell.glazedlists.event.ListEventPublisher;
+import ca.odell.glazedlists.util.concurrent.LockFactory;
+import ca.odell.glazedlists.util.concurrent.ReadWriteLock;
+
+/**
+ * A {@link PersistentEventListFactory} that uses a list category to determine
+ * the {@link ReadWriteLock} and {@link ListEventPublisher} of the EventLists it
+ * creates. All EventLists of one category share the same lock and publisher,
+ * so they can be locked together, and each of them doesn't need its own.
+ *
+ * @author Holger Brands
+ */
+public final class CategoryEventListFactory<E> implements PersistentEventListFactory<E> {
+
+	/** Maps categories to their lock and publisher. */
+	private static final Map<String, ListInfo> CATEGORY_MAP = new HashMap<String, ListInfo>();
+
+	/** The list category of this factory. */
+	private final String category;
+
+	/**
+	 * Constructor with the list category to use. If the category is not
+	 * registered yet, a new lock and publisher are created for it.
+	 *
+	 * @param category the list category
+	 */
+	public CategoryEventListFactory(String category) {
+		if (category == null) {
+			throw new IllegalArgumentException("Category must not be null");
+		}
+		this.category = category;
+		registerCategory(category);
+	}
+
+	/**
+	 * Constructor with the list category, lock and publisher to use.
+	 *
+	 * @param category  the list category
+	 * @param lock      the lock of the category
+	 * @param publisher the publisher of the category
+	 * @throws IllegalStateException if the category is already registered with
+	 *                               a different lock or publisher
+	 */
+	public CategoryEventListFactory(String category, ReadWriteLock lock, ListEventPublisher publisher) {
+		if (category == null) {
+			throw new IllegalArgumentException("Category must not be null");
+		}
+		if (lock == null) {
+			throw new IllegalArgumentException("ReadWriteLock must not be null");
+		}
+		if (publisher == null) {
+			throw new IllegalArgumentException("ListEventPublisher must not be null");
+		}
+		this.category = category;
+		registerCategory(category, lock, publisher);
+	}
+
+	/**
+	 * Registers the category with a new lock and publisher, unless it is
+	 * registered already.
+	 */
+	private static void registerCategory(String category) {
+		synchronized (CATEGORY_MAP) {
+			if (!CATEGORY_MAP.containsKey(category)) {
+				CATEGORY_MAP.put(category, new ListInfo());
+			}
+		}
+	}
+
+	/**
+	 * Registers the category with the given lock and publisher.
+	 */
+	private static void registerCategory(String category, ReadWriteLock lock, ListEventPublisher publisher) {
+		synchronized (CATEGORY_MAP) {
+			final ListInfo info = CATEGORY_MAP.get(category);
+			if (info != null) {
+				if (info.lock != lock || info.publisher != publisher) {
+					throw new IllegalStateException(
+							"List category " + category + " already in use with different lock or publisher");
+				}
+				return;
+			}
+			CATEGORY_MAP.put(category, new ListInfo(lock, publisher));
+		}
+	}
+
+	/**
+	 * @return the list category of this factory
+	 */
+	public String getCategory() {
+		return category;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public EventList<E> createEventList() {
+		final ListInfo info = getListInfo();
+		return new UnderlyingPersistentEventList<E>(info.publisher, info.lock);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public EventList<E> createEventList(int initalCapacity) {
+		final ListInfo info = getListInfo();
+		return new UnderlyingPersistentEventList<E>(initalCapacity, info.publisher, info.lock);
+	}
+
+	/**
+	 * @return the lock of this factory's category
+	 */
+	public ReadWriteLock getReadWriteLock() {
+		return getListInfo().lock;
+	}
+
+	/**
+	 * @return the publisher of this factory's category
+	 */
+	public ListEventPublisher getPublisher() {
+		return getListInfo().publisher;
+	}
+
+	private ListInfo getListInfo() {
+		synchronized (CATEGORY_MAP) {
+			final ListInfo info = CATEGORY_MAP.get(category);
+			if (info == null) {
+				throw new IllegalStateException("List category " + category + " is not registered");
+			}
+			return info;
+		}
+	}
+
+	/**
+	 * Removes all registered categories. Factories created before are unusable
+	 * afterwards. This is mainly useful for tests.
+	 */
+	public static void clearCategoryMapping() {
+		synchronized (CATEGORY_MAP) {
+			CATEGORY_MAP.clear();
+		}
+	}
+
+	/**
+	 * The lock and publisher of one category.
+	 */
+	private static final class ListInfo {
+		final ReadWriteLock lock;
+		final ListEventPublisher publisher;
+
+		ListInfo() {
+			this(LockFactory.DEFAULT.createReadWriteLock(), ListEventAssembler.createListEventPublisher());
+		}
+
+		ListInfo(ReadWriteLock lock, ListEventPublisher publisher) {
+			this.lock = lock;
+			this.publisher = publisher;
+		}
+	}
+}
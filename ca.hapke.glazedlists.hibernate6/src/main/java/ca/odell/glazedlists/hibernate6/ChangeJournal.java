@@ -0,0 +1,137 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import ca.odell.glazedlists.event.ListEvent;
+
+/**
+ * Records which indices of a list may differ from its Hibernate snapshot, so
+ * that flush-time dirty checks can skip the indices that are known to be
+ * unchanged.
+ * <p>
+ * The journal is conservative: an index reported as dirty may still equal the
+ * snapshot, but an index reported as clean is guaranteed to hold the same
+ * element it held when the snapshot was taken. Inserts and deletes shift every
+ * later index, so they are tracked as a single watermark; updates are tracked
+ * as a short list of index ranges, which collapses into one span if it grows
+ * too long.
+ *
+ * @author Nathan Hapke
+ */
+final class ChangeJournal implements Serializable {
+
+	private static final long serialVersionUID = 0L;
+
+	private static final int MAX_RANGES = 32;
+
+	/** every index at or above this one may have moved */
+	private int shiftedFrom = Integer.MAX_VALUE;
+
+	/** updated ranges as sorted, disjoint pairs of [start, end) */
+	private int[] ranges = new int[4];
+	private int rangeCount = 0;
+
+	/**
+	 * Records the changes described by the given event.
+	 */
+	void record(ListEvent<?> listChanges) {
+		if (listChanges.isReordering()) {
+			shiftedFrom = 0;
+			return;
+		}
+		while (listChanges.nextBlock()) {
+			final int start = listChanges.getBlockStartIndex();
+			if (listChanges.getType() == ListEvent.UPDATE) {
+				addRange(start, listChanges.getBlockEndIndex() + 1);
+			} else {
+				shiftedFrom = Math.min(shiftedFrom, start);
+			}
+		}
+	}
+
+	/**
+	 * Marks every index at or above the given one as possibly changed.
+	 */
+	void moved(int index) {
+		shiftedFrom = Math.min(shiftedFrom, index);
+	}
+
+	/**
+	 * Forgets all changes, to be called whenever a new snapshot is taken.
+	 */
+	void reset() {
+		shiftedFrom = Integer.MAX_VALUE;
+		rangeCount = 0;
+	}
+
+	/**
+	 * @return <code>true</code> if nothing changed since the last reset
+	 */
+	boolean isClean() {
+		return shiftedFrom == Integer.MAX_VALUE && rangeCount == 0;
+	}
+
+	/**
+	 * @return <code>true</code> if the element at the given index may differ
+	 *         from the snapshot
+	 */
+	boolean isDirty(int index) {
+		if (index >= shiftedFrom) {
+			return true;
+		}
+		// ranges are sorted, so a binary search finds the candidate
+		int low = 0;
+		int high = rangeCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (ranges[mid * 2 + 1] <= index) {
+				low = mid + 1;
+			} else if (ranges[mid * 2] > index) {
+				high = mid - 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void addRange(int start, int end) {
+		if (start >= shiftedFrom) {
+			return;
+		}
+
+		// find the first range that ends at or after the start
+		int first = 0;
+		while (first < rangeCount && ranges[first * 2 + 1] < start) {
+			first++;
+		}
+		// and the first range that starts after the end
+		int last = first;
+		while (last < rangeCount && ranges[last * 2] <= end) {
+			last++;
+		}
+
+		if (first < last) {
+			// merge the overlapping ranges into one
+			start = Math.min(start, ranges[first * 2]);
+			end = Math.max(end, ranges[(last - 1) * 2 + 1]);
+			System.arraycopy(ranges, last * 2, ranges, (first + 1) * 2, (rangeCount - last) * 2);
+			rangeCount -= last - first - 1;
+		} else if (rangeCount == MAX_RANGES) {
+			// too fragmented: keep a single span covering everything
+			start = Math.min(start, ranges[0]);
+			end = Math.max(end, ranges[(rangeCount - 1) * 2 + 1]);
+			first = 0;
+			rangeCount = 1;
+		} else {
+			if (ranges.length < (rangeCount + 1) * 2) {
+				ranges = Arrays.copyOf(ranges, ranges.length * 2);
+			}
+			System.arraycopy(ranges, first * 2, ranges, (first + 1) * 2, (rangeCount - first) * 2);
+			rangeCount++;
+		}
+		ranges[first * 2] = start;
+		ranges[first * 2 + 1] = end;
+	}
+}
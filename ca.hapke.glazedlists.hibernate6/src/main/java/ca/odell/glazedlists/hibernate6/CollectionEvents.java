@@ -0,0 +1,143 @@
+package ca.odell.glazedlists.hibernate6;
+
+import ca.odell.glazedlists.event.ListEvent;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The Java Flight Recorder events of the persistent EventLists.
+ * <p>
+ * Each event is created, begun and ended unconditionally, which costs next to
+ * nothing while no recording is active, since JFR only instruments event
+ * classes that are enabled. The fields are only filled in after
+ * {@link Event#shouldCommit()} returned true, so role and owner descriptions
+ * aren't built for events that are thrown away.
+ *
+ * @author Nathan Hapke
+ */
+final class CollectionEvents {
+
+	private static final String CATEGORY = "Glazed Lists";
+
+	private static final String PREFIX = "ca.odell.glazedlists.hibernate6.";
+
+	private CollectionEvents() {
+	}
+
+	/**
+	 * @return the entity name and identifier of a collection's owner, or null
+	 *         if either is unknown
+	 */
+	static String describeOwner(Object owner, Object key) {
+		if (owner == null) {
+			return null;
+		}
+		return owner.getClass().getName() + "#" + key;
+	}
+
+	/**
+	 * @return the number of inserted, updated and deleted elements
+	 */
+	static int countChanges(ListEvent<?> listChanges) {
+		int changes = 0;
+		while (listChanges.nextBlock()) {
+			changes += listChanges.getBlockEndIndex() - listChanges.getBlockStartIndex() + 1;
+		}
+		listChanges.reset();
+		return changes;
+	}
+
+	static int countBlocks(ListEvent<?> listChanges) {
+		int blocks = 0;
+		while (listChanges.nextBlock()) {
+			blocks++;
+		}
+		listChanges.reset();
+		return blocks;
+	}
+
+	/**
+	 * The fields all events share.
+	 */
+	@Category({ CATEGORY, "Hibernate" })
+	abstract static class CollectionEvent extends Event {
+		@Label("Role")
+		@Description("Collection role, i.e. the owner's entity name and the property name")
+		String role;
+
+		@Label("Owner")
+		@Description("Entity name and identifier of the entity that owns the collection")
+		String owner;
+
+		@Label("Size")
+		@Description("Number of elements, or -1 if the collection isn't initialized")
+		int size;
+
+		void describe(PersistentEventList<?> collection) {
+			role = collection.getRole();
+			owner = describeOwner(collection.getOwner(), collection.getKey());
+			size = collection.getDelegateSize();
+		}
+	}
+
+	@Name(PREFIX + "Initialization")
+	@Label("Collection Initialization")
+	@Description("A collection takes over the elements read from the database")
+	static final class Initialization extends CollectionEvent {
+	}
+
+	@Name(PREFIX + "UpdateAll")
+	@Label("Update All Elements")
+	@Description("The elements of a collection are replaced, with one ListEvent")
+	static final class UpdateAll extends CollectionEvent {
+		@Label("Old Size")
+		int oldSize;
+
+		@Label("Changes")
+		@Description("Number of inserted, updated and deleted elements")
+		int changes;
+
+		@Label("Diffed by Delegate")
+		@Description("Whether the underlying EventList diffed the elements itself")
+		boolean delegate;
+	}
+
+	@Name(PREFIX + "ReplaceElements")
+	@Label("Replace Elements")
+	@Description("Hibernate copies the elements of a detached collection during a merge")
+	static final class ReplaceElements extends CollectionEvent {
+		@Label("Lock Wait")
+		@Timespan(Timespan.NANOSECONDS)
+		long lockWait;
+
+		@Label("Changed")
+		boolean changed;
+	}
+
+	@Name(PREFIX + "ListChanged")
+	@Label("List Changed")
+	@Description("A ListEvent of a collection is delivered to its listeners")
+	@StackTrace(false)
+	static final class ListChanged extends CollectionEvent {
+		@Label("Listeners")
+		int listeners;
+
+		@Label("Blocks")
+		@Description("Number of contiguous blocks of changes in the ListEvent")
+		int blocks;
+
+		@Label("Forwarded")
+		@Description("Whether the ListEvent was copied from the delegate, rather than shared with it")
+		boolean forwarded;
+	}
+
+	@Name(PREFIX + "Dispose")
+	@Label("Collection Dispose")
+	static final class Dispose extends CollectionEvent {
+	}
+}
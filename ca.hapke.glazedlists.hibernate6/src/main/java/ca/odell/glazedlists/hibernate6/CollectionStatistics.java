@@ -0,0 +1,266 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Opt-in statistics about the {@link PersistentEventList}s of this JVM,
+ * published as a platform MXBean named {@value #OBJECT_NAME}.
+ * <p>
+ * Once {@link #enable(int) enabled}, every n-th new collection is tracked
+ * through a weak reference, so tracking doesn't keep collections alive. Only
+ * tracked collections count their events and updates, so a sample rate above
+ * 1 keeps the overhead low enough for production. Lock contention is counted
+ * for every merge, since it is rare.
+ *
+ * @author Nathan Hapke
+ */
+public final class CollectionStatistics implements CollectionStatisticsMXBean {
+
+	/** the name of the MXBean */
+	public static final String OBJECT_NAME = "ca.odell.glazedlists.hibernate6:type=CollectionStatistics";
+
+	/** the enabled statistics, or null */
+	private static volatile CollectionStatistics current;
+
+	private final int sampleRate;
+	private final AtomicLong created = new AtomicLong();
+
+	private final Set<Reference<PersistentEventList<?>>> tracked = ConcurrentHashMap.newKeySet();
+	private final ReferenceQueue<PersistentEventList<?>> collected = new ReferenceQueue<>();
+
+	private final LongAdder eventsPublished = new LongAdder();
+	private final LongAdder updateAllCount = new LongAdder();
+	private final LongAdder updateAllChanges = new LongAdder();
+	private final LongAdder updateAllElements = new LongAdder();
+	private final LongAdder lockContentions = new LongAdder();
+	private final LongAdder lockWaitNanos = new LongAdder();
+
+	private CollectionStatistics(int sampleRate) {
+		this.sampleRate = sampleRate;
+	}
+
+	/**
+	 * Starts collecting statistics and registers them with the platform
+	 * MBeanServer, replacing statistics enabled before.
+	 *
+	 * @param sampleRate track one of this many new collections; 1 tracks all
+	 * @return the new statistics
+	 * @throws IllegalStateException if the MXBean can't be registered
+	 */
+	public static synchronized CollectionStatistics enable(int sampleRate) {
+		if (sampleRate < 1) {
+			throw new IllegalArgumentException("Sample rate must be at least 1: " + sampleRate);
+		}
+		disable();
+		final CollectionStatistics statistics = new CollectionStatistics(sampleRate);
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(statistics, new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			throw new IllegalStateException("Unable to register " + OBJECT_NAME, e);
+		}
+		current = statistics;
+		return statistics;
+	}
+
+	/**
+	 * Stops collecting statistics and unregisters the MXBean. Collections
+	 * tracked so far keep counting into the old statistics object.
+	 */
+	public static synchronized void disable() {
+		if (current == null) {
+			return;
+		}
+		current = null;
+		try {
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		} catch (JMException e) {
+			throw new IllegalStateException("Unable to unregister " + OBJECT_NAME, e);
+		}
+	}
+
+	/**
+	 * @return the enabled statistics, or null
+	 */
+	public static CollectionStatistics current() {
+		return current;
+	}
+
+	/**
+	 * Tracks the new collection if it is sampled.
+	 *
+	 * @return the statistics to count the collection's work into, or null if
+	 *         the collection isn't tracked
+	 */
+	static CollectionStatistics track(PersistentEventList<?> collection) {
+		final CollectionStatistics statistics = current;
+		if (statistics == null || statistics.created.getAndIncrement() % statistics.sampleRate != 0) {
+			return null;
+		}
+		statistics.expunge();
+		statistics.tracked.add(new WeakReference<PersistentEventList<?>>(collection, statistics.collected));
+		return statistics;
+	}
+
+	/**
+	 * Counts a merge into the enabled statistics, if any.
+	 */
+	static void lockAcquired(boolean contended, long waitNanos) {
+		final CollectionStatistics statistics = current;
+		if (statistics != null) {
+			if (contended) {
+				statistics.lockContentions.increment();
+			}
+			statistics.lockWaitNanos.add(waitNanos);
+		}
+	}
+
+	void eventPublished() {
+		eventsPublished.increment();
+	}
+
+	void updatedAll(int changes, int newSize) {
+		updateAllCount.increment();
+		updateAllChanges.add(changes);
+		updateAllElements.add(newSize);
+	}
+
+	private void expunge() {
+		Reference<? extends PersistentEventList<?>> reference;
+		while ((reference = collected.poll()) != null) {
+			tracked.remove(reference);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getLiveCollections() {
+		int live = 0;
+		for (Reference<PersistentEventList<?>> reference : tracked) {
+			if (reference.get() != null) {
+				live++;
+			}
+		}
+		return live;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Map<String, Integer> getCollectionsPerRole() {
+		final Map<String, Integer> result = new TreeMap<>();
+		for (Reference<PersistentEventList<?>> reference : tracked) {
+			final PersistentEventList<?> collection = reference.get();
+			if (collection != null) {
+				final String role = collection.getRole();
+				result.merge((role == null) ? "(unreferenced)" : role, Integer.valueOf(1), Integer::sum);
+			}
+		}
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Map<Long, Integer> getSizeHistogram() {
+		final Map<Long, Integer> result = new TreeMap<>();
+		for (Reference<PersistentEventList<?>> reference : tracked) {
+			final PersistentEventList<?> collection = reference.get();
+			if (collection != null) {
+				result.merge(Long.valueOf(lowerBound(collection.getDelegateSize())), Integer.valueOf(1),
+						Integer::sum);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the largest power of ten not above the size, or the size itself
+	 *         if it is 0 or -1
+	 */
+	private static long lowerBound(int size) {
+		long bound = 1;
+		if (size <= 0) {
+			return size;
+		}
+		while (bound * 10 <= size) {
+			bound *= 10;
+		}
+		return bound;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long getListeners() {
+		long listeners = 0;
+		for (Reference<PersistentEventList<?>> reference : tracked) {
+			final PersistentEventList<?> collection = reference.get();
+			if (collection != null) {
+				listeners += collection.getListenerCount();
+			}
+		}
+		return listeners;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long getEventsPublished() {
+		return eventsPublished.sum();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long getUpdateAllCount() {
+		return updateAllCount.sum();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public double getUpdateAllChangeRatio() {
+		final long elements = updateAllElements.sum();
+		return (elements == 0) ? 0 : (double) updateAllChanges.sum() / elements;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long getLockContentions() {
+		return lockContentions.sum();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long getLockWaitNanos() {
+		return lockWaitNanos.sum();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void reset() {
+		eventsPublished.reset();
+		updateAllCount.reset();
+		updateAllChanges.reset();
+		updateAllElements.reset();
+		lockContentions.reset();
+		lockWaitNanos.reset();
+	}
+}
@@ -0,0 +1,70 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.Map;
+
+/**
+ * The JMX view of the {@link CollectionStatistics}.
+ *
+ * @author Nathan Hapke
+ */
+public interface CollectionStatisticsMXBean {
+
+	/**
+	 * @return how many collections are created for each tracked one
+	 */
+	int getSampleRate();
+
+	/**
+	 * @return the number of tracked collections that are still reachable
+	 */
+	int getLiveCollections();
+
+	/**
+	 * @return the number of reachable tracked collections per collection role
+	 */
+	Map<String, Integer> getCollectionsPerRole();
+
+	/**
+	 * @return the number of reachable tracked collections per size range, keyed
+	 *         by the lower bound of the range: 0, 1, 10, 100 and so on, or -1
+	 *         for uninitialized collections
+	 */
+	Map<Long, Integer> getSizeHistogram();
+
+	/**
+	 * @return the number of listeners registered with reachable tracked
+	 *         collections
+	 */
+	long getListeners();
+
+	/**
+	 * @return the number of ListEvents published by tracked collections
+	 */
+	long getEventsPublished();
+
+	/**
+	 * @return the number of updateAll calls on tracked collections
+	 */
+	long getUpdateAllCount();
+
+	/**
+	 * @return the changed elements divided by the resulting elements, over all
+	 *         updateAll calls on tracked collections
+	 */
+	double getUpdateAllChangeRatio();
+
+	/**
+	 * @return the number of replaceElements calls that had to wait for a lock
+	 */
+	long getLockContentions();
+
+	/**
+	 * @return the total time replaceElements waited for locks, in nanoseconds
+	 */
+	long getLockWaitNanos();
+
+	/**
+	 * Resets the counters. The tracked collections stay tracked.
+	 */
+	void reset();
+}
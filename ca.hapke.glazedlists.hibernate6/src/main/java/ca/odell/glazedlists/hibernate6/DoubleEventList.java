@@ -0,0 +1,81 @@
+package ca.odell.glazedlists.hibernate6;
+
+import ca.odell.glazedlists.event.ListEventPublisher;
+import ca.odell.glazedlists.util.concurrent.ReadWriteLock;
+
+/**
+ * A {@link PrimitiveEventList} that stores its elements in an
+ * <code>double[]</code>.
+ *
+ * @author Nathan Hapke
+ */
+public final class DoubleEventList extends PrimitiveEventList<Double> {
+
+	public DoubleEventList() {
+		this(10, null, null);
+	}
+
+	public DoubleEventList(ListEventPublisher publisher, ReadWriteLock readWriteLock) {
+		this(10, publisher, readWriteLock);
+	}
+
+	public DoubleEventList(int initialCapacity, ListEventPublisher publisher, ReadWriteLock readWriteLock) {
+		super(initialCapacity, publisher, readWriteLock);
+	}
+
+	@Override
+	Object createArray(int length) {
+		return new double[length];
+	}
+
+	@Override
+	int capacity(Object array) {
+		return ((double[]) array).length;
+	}
+
+	@Override
+	Double box(Object array, int index) {
+		return Double.valueOf(((double[]) array)[index]);
+	}
+
+	@Override
+	void unbox(Object array, int index, Double value) {
+		((double[]) array)[index] = value.doubleValue();
+	}
+
+	/**
+	 * @return the element at the index, without boxing it
+	 */
+	public double getDouble(int index) {
+		checkIndex(index, size);
+		return ((double[]) elements)[index];
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int indexOf(Object object) {
+		if (!(object instanceof Double))
+			return -1;
+		final long bits = Double.doubleToLongBits(((Double) object).doubleValue());
+		final double[] values = (double[]) elements;
+		for (int i = 0; i < size; i++) {
+			if (Double.doubleToLongBits(values[i]) == bits)
+				return i;
+		}
+		return -1;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int lastIndexOf(Object object) {
+		if (!(object instanceof Double))
+			return -1;
+		final long bits = Double.doubleToLongBits(((Double) object).doubleValue());
+		final double[] values = (double[]) elements;
+		for (int i = size - 1; i >= 0; i--) {
+			if (Double.doubleToLongBits(values[i]) == bits)
+				return i;
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,26 @@
+package ca.odell.glazedlists.hibernate6;
+
+/**
+ * A {@link PersistentEventListType} for value collections of Doubles, which
+ * stores the elements in an <code>double[]</code> instead of boxing each of them.
+ * Null elements are not supported, and neither are gaps in the list-index
+ * values, unless {@link #useOrderKeyGap(int) an order key gap} is used.
+ *
+ * <pre>
+ * &lt;list name="values" table="VALUES" collection-type="ca.odell.glazedlists.hibernate6.DoubleEventListType"&gt;
+ *     &lt;key column="OWNER_ID"/&gt;
+ *     &lt;list-index column="DISPLAY_ORDER"/&gt;
+ *     &lt;element column="VAL" type="double"/&gt;
+ * &lt;/list&gt;
+ * </pre>
+ *
+ * @see DoubleEventList
+ *
+ * @author Nathan Hapke
+ */
+public class DoubleEventListType extends PersistentEventListType<Double> {
+
+	public DoubleEventListType() {
+		setListFactory(new PrimitiveEventListFactory<Double>(Double.class));
+	}
+}
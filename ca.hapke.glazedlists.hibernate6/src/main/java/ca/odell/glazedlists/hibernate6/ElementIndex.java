@@ -0,0 +1,125 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A secondary index from the elements of a list to their number of
+ * occurrences and their first position, so that <code>contains</code> and
+ * <code>indexOf</code> don't have to scan the list.
+ * <p>
+ * Occurrence counts are maintained on every change. First positions move with
+ * every insert and delete, so they are rebuilt lazily, on the first lookup
+ * after such a change. Lookups may run concurrently under a shared read lock,
+ * so each builds the map on its own and publishes it complete; only changes,
+ * made under the write lock, modify a published map.
+ * <p>
+ * Entities are indexed by identity: within a session, Hibernate guarantees a
+ * single instance per identifier, and an entity's <code>hashCode</code> may
+ * change as its properties do. Values are indexed by equality, so they must
+ * not change their <code>hashCode</code> while they are in the list.
+ *
+ * @author Nathan Hapke
+ */
+final class ElementIndex {
+
+	private final boolean identity;
+
+	private final Map<Object, int[]> counts;
+
+	/** the first position of each element, or null if it must be rebuilt */
+	private volatile Map<Object, Integer> firstPositions;
+
+	ElementIndex(boolean identity) {
+		this.identity = identity;
+		this.counts = createMap();
+	}
+
+	private <V> Map<Object, V> createMap() {
+		return identity ? new IdentityHashMap<Object, V>() : new HashMap<Object, V>();
+	}
+
+	boolean isIdentity() {
+		return identity;
+	}
+
+	/**
+	 * Indexes all of the given elements from scratch.
+	 */
+	void rebuild(List<?> elements) {
+		counts.clear();
+		firstPositions = null;
+		for (Object element : elements) {
+			count(element);
+		}
+	}
+
+	/**
+	 * Records an element added at the given position of a list that now has
+	 * the given size.
+	 */
+	void added(Object element, int index, int size) {
+		count(element);
+		final Map<Object, Integer> positions = firstPositions;
+		if (positions != null) {
+			if (index == size - 1) {
+				// appending doesn't move any other element
+				positions.putIfAbsent(element, Integer.valueOf(index));
+			} else {
+				firstPositions = null;
+			}
+		}
+	}
+
+	/**
+	 * Records an element removed from the list.
+	 */
+	void removed(Object element) {
+		final int[] count = counts.get(element);
+		if (count != null && --count[0] == 0) {
+			counts.remove(element);
+		}
+		firstPositions = null;
+	}
+
+	/**
+	 * Records elements that moved without being added or removed.
+	 */
+	void moved() {
+		firstPositions = null;
+	}
+
+	boolean contains(Object element) {
+		return counts.containsKey(element);
+	}
+
+	/**
+	 * @return the first position of the element in the given list, which must
+	 *         be the indexed one, or -1
+	 */
+	int indexOf(Object element, List<?> elements) {
+		if (!counts.containsKey(element)) {
+			return -1;
+		}
+		Map<Object, Integer> positions = firstPositions;
+		if (positions == null) {
+			positions = createMap();
+			for (int i = 0, size = elements.size(); i < size; i++) {
+				positions.putIfAbsent(elements.get(i), Integer.valueOf(i));
+			}
+			firstPositions = positions;
+		}
+		return positions.get(element).intValue();
+	}
+
+	private void count(Object element) {
+		final int[] count = counts.get(element);
+		if (count == null) {
+			counts.put(element, new int[] { 1 });
+		} else {
+			count[0]++;
+		}
+	}
+}
@@ -0,0 +1,658 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import ca.odell.glazedlists.AbstractEventList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.event.ListEvent;
+import ca.odell.glazedlists.event.ListEventAssembler;
+import ca.odell.glazedlists.event.ListEventPublisher;
+import ca.odell.glazedlists.util.concurrent.LockFactory;
+import ca.odell.glazedlists.util.concurrent.ReadWriteLock;
+
+/**
+ * An EventList of entities that stores only their identifiers, in a
+ * <code>long[]</code>, and resolves an element when it is read. The most
+ * recently resolved entities are kept in a bounded cache; any other element
+ * costs this list eight bytes. That is all this list saves: Hibernate still
+ * loads every entity when it initializes the collection, and the session
+ * keeps them until they are evicted, or it is cleared or closed.
+ * <p>
+ * An element is only stored as its identifier if the session manages it, so
+ * that resolving the identifier returns the same instance. Other elements,
+ * such as new entities that aren't saved yet, and null, are held directly
+ * until they are found to be managed.
+ * <p>
+ * Elements are looked up by identifier, so {@link #indexOf(Object)} and
+ * {@link #updateAll(List)} don't resolve anything. The old values of bulk
+ * changes are {@link ListEvent#UNKNOWN_VALUE} unless they are cached.
+ * <p>
+ * Before the session goes away, {@link #holdAll()} resolves every element and
+ * holds it directly, so the list keeps working without a session.
+ *
+ * @see PersistentEventListType#useEntityReferences(int)
+ *
+ * @author Nathan Hapke
+ */
+final class EntityReferenceEventList<E> extends AbstractEventList<E>
+		implements RandomAccess, CanUpdateAllElements<E>, CanHydrateElements<E> {
+
+	/** marks a null element in {@link #pinned} */
+	private static final Object NULL = NullElement.INSTANCE;
+
+	/** how many of the following elements a cache miss resolves as well */
+	private static final int RESOLVE_AHEAD = 32;
+
+	private final EntityResolver<E> resolver;
+
+	private long[] ids;
+
+	/** the elements that are held directly, or null if there are none */
+	private Object[] pinned;
+
+	private int pinnedCount;
+
+	private int size;
+
+	/** the recently resolved entities by identifier, least recently used first */
+	private final Map<Long, E> resolved;
+
+	private final int resolveAhead;
+
+	EntityReferenceEventList(EntityResolver<E> resolver, final int cacheSize, int initialCapacity,
+			ListEventPublisher publisher, ReadWriteLock readWriteLock) {
+		super(publisher);
+		if (cacheSize < 1) {
+			throw new IllegalArgumentException("Cache size must be positive: " + cacheSize);
+		}
+		this.resolver = resolver;
+		this.ids = new long[initialCapacity];
+		this.readWriteLock = (readWriteLock == null) ? LockFactory.DEFAULT.createReadWriteLock() : readWriteLock;
+		this.resolveAhead = Math.min(RESOLVE_AHEAD, cacheSize / 2);
+		this.resolved = new LinkedHashMap<Long, E>(16, 0.75f, true) {
+			private static final long serialVersionUID = 0L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, E> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	/**
+	 * Makes the events of this list appear to come from the given list.
+	 *
+	 * @see UnderlyingPersistentEventList#publishAs(EventList)
+	 */
+	ListEventAssembler<E> publishAs(EventList<E> owner) {
+		if (!updates.getListEventListeners().isEmpty()) {
+			return null;
+		}
+		updates = new ListEventAssembler<E>(owner, publisher);
+		return updates;
+	}
+
+	/**
+	 * @return the identifiers and directly held elements, as a list that
+	 *         resolves its elements like this one. Hibernate takes a
+	 *         snapshot after each flush, so elements saved by it are then
+	 *         stored as their identifiers.
+	 */
+	Serializable snapshot() {
+		unpinManaged();
+		return new Snapshot(Arrays.copyOf(ids, size), pinned == null ? null : Arrays.copyOf(pinned, size),
+				resolver);
+	}
+
+	private void checkIndex(int index, int bound) {
+		if (index < 0 || index >= bound) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	private void ensureCapacity(int minCapacity) {
+		final int capacity = ids.length;
+		if (minCapacity > capacity) {
+			final int grown = Math.max(minCapacity, capacity + (capacity >> 1) + 1);
+			ids = Arrays.copyOf(ids, grown);
+			if (pinned != null) {
+				pinned = Arrays.copyOf(pinned, grown);
+			}
+		}
+	}
+
+	/**
+	 * Stores the element at the index, as its identifier if it has one.
+	 *
+	 * @param cache whether to cache the element, as it is likely read again
+	 */
+	private void store(int index, E element, boolean cache) {
+		final Long id = (element == null) ? null : resolver.identify(element);
+		if (id == null) {
+			pin(index, element == null ? NULL : element);
+			return;
+		}
+		unpin(index);
+		ids[index] = id.longValue();
+		if (cache) {
+			synchronized (resolved) {
+				resolved.put(id, element);
+			}
+		}
+	}
+
+	private void pin(int index, Object element) {
+		if (pinned == null) {
+			pinned = new Object[ids.length];
+		}
+		if (pinned[index] == null) {
+			pinnedCount++;
+		}
+		pinned[index] = element;
+	}
+
+	private void unpin(int index) {
+		if (pinned != null && pinned[index] != null) {
+			pinned[index] = null;
+			if (--pinnedCount == 0) {
+				pinned = null;
+			}
+		}
+	}
+
+	/**
+	 * Stores the directly held elements that are managed by now as their
+	 * identifiers.
+	 */
+	private void unpinManaged() {
+		for (int i = 0; pinned != null && i < size; i++) {
+			final Object element = pinned[i];
+			if (element != null && element != NULL) {
+				final Long id = resolver.identify(element);
+				if (id != null) {
+					unpin(i);
+					ids[i] = id.longValue();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Holds every element directly, resolving those that aren't cached, so
+	 * that this list can be read, searched and merged without a session. The
+	 * elements that a later session manages are stored as identifiers again
+	 * at its next snapshot.
+	 */
+	void holdAll() {
+		if (size == 0)
+			return;
+		if (pinned == null) {
+			pinned = new Object[ids.length];
+		}
+		synchronized (resolved) {
+			for (int i = 0; i < size; i++) {
+				if (pinned[i] == null) {
+					E element = resolved.get(Long.valueOf(ids[i]));
+					if (element == null) {
+						element = resolver.resolve(ids[i]);
+					}
+					pinned[i] = (element == null) ? NULL : element;
+					pinnedCount++;
+				}
+			}
+			resolved.clear();
+		}
+	}
+
+	/**
+	 * @return what identifies the element: its identifier if it is managed,
+	 *         or else the element itself
+	 */
+	private Object keyOf(Object element) {
+		if (element == null) {
+			return NULL;
+		}
+		final Long id = resolver.identify(element);
+		return (id == null) ? element : id;
+	}
+
+	/**
+	 * @return the keys of the elements, without resolving them
+	 */
+	private List<Object> keys() {
+		return new AbstractList<Object>() {
+			@Override
+			public Object get(int index) {
+				return (pinned != null && pinned[index] != null) ? pinned[index] : Long.valueOf(ids[index]);
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * @return the element, if it is held directly or cached; otherwise
+	 *         {@link ListEvent#UNKNOWN_VALUE}
+	 */
+	private E peek(long[] ids, Object[] pinned, int index) {
+		if (pinned != null && pinned[index] != null) {
+			return unmask(pinned[index]);
+		}
+		synchronized (resolved) {
+			final E element = resolved.get(Long.valueOf(ids[index]));
+			return (element == null) ? ListEvent.<E>unknownValue() : element;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <E> E unmask(Object element) {
+		return (element == NULL) ? null : (E) element;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public E get(int index) {
+		checkIndex(index, size);
+		if (pinned != null && pinned[index] != null) {
+			return unmask(pinned[index]);
+		}
+		final Long id = Long.valueOf(ids[index]);
+		synchronized (resolved) {
+			E element = resolved.get(id);
+			if (element == null) {
+				element = resolver.resolve(id.longValue());
+				resolved.put(id, element);
+				resolveAhead(index + 1);
+			}
+			return element;
+		}
+	}
+
+	/**
+	 * Resolves the elements following a cache miss, so that they can be batch
+	 * fetched together.
+	 */
+	private void resolveAhead(int start) {
+		final int end = Math.min(size, start + resolveAhead);
+		for (int i = start; i < end; i++) {
+			if (pinned == null || pinned[i] == null) {
+				final Long id = Long.valueOf(ids[i]);
+				if (!resolved.containsKey(id)) {
+					resolved.put(id, resolver.resolve(ids[i]));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the identifier of the element at the index, or null if the
+	 *         element is held directly
+	 */
+	Long getId(int index) {
+		checkIndex(index, size);
+		return (pinned != null && pinned[index] != null) ? null : Long.valueOf(ids[index]);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void add(int index, E element) {
+		checkIndex(index, size + 1);
+		ensureCapacity(size + 1);
+		shift(index, 1);
+		store(index, element, true);
+		size++;
+
+		updates.beginEvent();
+		updates.elementInserted(index, element);
+		updates.commitEvent();
+	}
+
+	/**
+	 * Moves the elements from the index on by the given distance, leaving the
+	 * gap unpinned.
+	 */
+	private void shift(int index, int distance) {
+		System.arraycopy(ids, index, ids, index + distance, size - index);
+		if (pinned != null) {
+			System.arraycopy(pinned, index, pinned, index + distance, size - index);
+			Arrays.fill(pinned, index, index + distance, null);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean addAll(Collection<? extends E> collection) {
+		return addAll(size, collection);
+	}
+
+	/** {@inheritDoc} */
+	@SuppressWarnings("unchecked")
+	@Override
+	public boolean addAll(int index, Collection<? extends E> collection) {
+		checkIndex(index, size + 1);
+		final Object[] added = collection.toArray();
+		if (added.length == 0)
+			return false;
+
+		ensureCapacity(size + added.length);
+		shift(index, added.length);
+		for (int i = 0; i < added.length; i++) {
+			store(index + i, (E) added[i], false);
+		}
+		size += added.length;
+
+		updates.beginEvent();
+		for (int i = 0; i < added.length; i++) {
+			updates.elementInserted(index + i, (E) added[i]);
+		}
+		updates.commitEvent();
+		return true;
+	}
+
+	/**
+	 * Stores the identifiers of the loaded entities without publishing a
+	 * ListEvent, and without caching the entities.
+	 */
+	@Override
+	public void hydrate(Collection<? extends E> values) {
+		ensureCapacity(size + values.size());
+		for (E value : values) {
+			store(size, value, false);
+			size++;
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public E set(int index, E element) {
+		final E previous = get(index);
+		store(index, element, true);
+
+		updates.beginEvent();
+		updates.elementUpdated(index, previous, element);
+		updates.commitEvent();
+		return previous;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public E remove(int index) {
+		final E removed = get(index);
+		unpin(index);
+		System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+		if (pinned != null) {
+			System.arraycopy(pinned, index + 1, pinned, index, size - index - 1);
+			pinned[size - 1] = null;
+		}
+		size--;
+
+		updates.beginEvent();
+		updates.elementDeleted(index, removed);
+		updates.commitEvent();
+		return removed;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void clear() {
+		if (size == 0)
+			return;
+		updates.beginEvent();
+		for (int i = 0; i < size; i++) {
+			updates.elementDeleted(0, peek(ids, pinned, i));
+		}
+		size = 0;
+		pinned = null;
+		pinnedCount = 0;
+		updates.commitEvent();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean removeAll(Collection<?> collection) {
+		return compact(keysOf(collection), false);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean retainAll(Collection<?> collection) {
+		return compact(keysOf(collection), true);
+	}
+
+	private Set<Object> keysOf(Collection<?> collection) {
+		final Set<Object> keys = new HashSet<Object>();
+		for (Object element : collection) {
+			keys.add(keyOf(element));
+		}
+		return keys;
+	}
+
+	/**
+	 * Keeps the elements whose membership equals <code>retain</code>, moving
+	 * them to the front in a single pass.
+	 */
+	private boolean compact(Set<Object> members, boolean retain) {
+		if (size == 0)
+			return false;
+		unpinManaged();
+		final List<Object> keys = keys();
+
+		updates.beginEvent();
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			if (members.contains(keys.get(i)) == retain) {
+				if (kept != i) {
+					ids[kept] = ids[i];
+					if (pinned != null) {
+						pinned[kept] = pinned[i];
+					}
+				}
+				kept++;
+			} else {
+				updates.elementDeleted(kept, peek(ids, pinned, i));
+			}
+		}
+
+		if (kept == size) {
+			updates.discardEvent();
+			return false;
+		}
+		if (pinned != null) {
+			Arrays.fill(pinned, kept, size, null);
+			pinnedCount = 0;
+			for (int i = 0; i < kept; i++) {
+				if (pinned[i] != null) {
+					pinnedCount++;
+				}
+			}
+			if (pinnedCount == 0) {
+				pinned = null;
+			}
+		}
+		size = kept;
+		updates.commitEvent();
+		return true;
+	}
+
+	/**
+	 * Replaces the elements with the given ones, publishing only the changed
+	 * ranges as one ListEvent. Elements are compared by identifier.
+	 */
+	@Override
+	public boolean updateAll(List<? extends E> input) {
+		unpinManaged();
+		final Object[] inputKeys = new Object[input.size()];
+		for (int i = 0; i < inputKeys.length; i++) {
+			inputKeys[i] = keyOf(input.get(i));
+		}
+		final ListDiff<Object> diff = ListDiff.computeByEquals(keys(), Arrays.asList(inputKeys));
+		final int hunkCount = diff.getHunkCount();
+		if (hunkCount == 0)
+			return false;
+
+		final long[] oldIds = ids;
+		final Object[] oldPinned = pinned;
+		final int oldSize = size;
+		ids = new long[Math.max(input.size(), 10)];
+		pinned = null;
+		pinnedCount = 0;
+		size = 0;
+		updates.beginEvent();
+
+		int oldIndex = 0;
+		for (int h = 0; h < hunkCount; h++) {
+			final int oldStart = diff.getOldStart(h);
+			final int oldLength = diff.getOldLength(h);
+			final int newStart = diff.getNewStart(h);
+			final int newLength = diff.getNewLength(h);
+
+			// unchanged elements up to the hunk
+			copy(oldIds, oldPinned, oldIndex, oldStart);
+
+			final int replaced = Math.min(oldLength, newLength);
+			for (int i = 0; i < replaced; i++) {
+				final E newValue = input.get(newStart + i);
+				updates.elementUpdated(size, peek(oldIds, oldPinned, oldStart + i), newValue);
+				store(size++, newValue, false);
+			}
+			for (int i = replaced; i < oldLength; i++) {
+				updates.elementDeleted(size, peek(oldIds, oldPinned, oldStart + i));
+			}
+			for (int i = replaced; i < newLength; i++) {
+				final E newValue = input.get(newStart + i);
+				updates.elementInserted(size, newValue);
+				store(size++, newValue, false);
+			}
+			oldIndex = oldStart + oldLength;
+		}
+		copy(oldIds, oldPinned, oldIndex, oldSize);
+
+		updates.commitEvent();
+		return true;
+	}
+
+	/**
+	 * Appends the old elements from <code>start</code> to <code>end</code>,
+	 * exclusive.
+	 */
+	private void copy(long[] oldIds, Object[] oldPinned, int start, int end) {
+		System.arraycopy(oldIds, start, ids, size, end - start);
+		for (int i = start; oldPinned != null && i < end; i++) {
+			if (oldPinned[i] != null) {
+				pin(size + i - start, oldPinned[i]);
+			}
+		}
+		size += end - start;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean contains(Object object) {
+		return indexOf(object) >= 0;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int indexOf(Object object) {
+		final Object key = keyOf(object);
+		for (int i = 0; i < size; i++) {
+			if (matches(i, key)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int lastIndexOf(Object object) {
+		final Object key = keyOf(object);
+		for (int i = size - 1; i >= 0; i--) {
+			if (matches(i, key)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private boolean matches(int index, Object key) {
+		if (pinned != null && pinned[index] != null) {
+			return pinned[index].equals(key) || keyOf(unmask(pinned[index])).equals(key);
+		}
+		return (key instanceof Long) && ids[index] == ((Long) key).longValue();
+	}
+
+	/**
+	 * Releases the identifiers and cached entities, without publishing a
+	 * ListEvent. This list is empty afterwards and must not be used anymore.
+	 */
+	@Override
+	public void dispose() {
+		ids = new long[0];
+		pinned = null;
+		pinnedCount = 0;
+		size = 0;
+		synchronized (resolved) {
+			resolved.clear();
+		}
+	}
+
+	/**
+	 * A serializable marker, which stays unique when a snapshot is
+	 * deserialized.
+	 */
+	private enum NullElement {
+		INSTANCE
+	}
+
+	/**
+	 * The snapshot Hibernate compares a collection against when flushing,
+	 * which holds identifiers like the collection itself.
+	 */
+	private static final class Snapshot extends AbstractList<Object> implements RandomAccess, Serializable {
+		private static final long serialVersionUID = 0L;
+
+		private final long[] ids;
+		private final Object[] pinned;
+		private final EntityResolver<?> resolver;
+
+		Snapshot(long[] ids, Object[] pinned, EntityResolver<?> resolver) {
+			this.ids = ids;
+			this.pinned = pinned;
+			this.resolver = resolver;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public Object get(int index) {
+			if (pinned != null && pinned[index] != null) {
+				return unmask(pinned[index]);
+			}
+			return resolver.resolve(ids[index]);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int size() {
+			return ids.length;
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package ca.odell.glazedlists.hibernate6;
+
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.event.ListEventPublisher;
+import ca.odell.glazedlists.util.concurrent.ReadWriteLock;
+
+/**
+ * A {@link PersistentEventListFactory} that creates the
+ * {@link EntityReferenceEventList} of one collection.
+ *
+ * @author Nathan Hapke
+ */
+final class EntityReferenceEventListFactory<E> implements PersistentEventListFactory<E> {
+
+	private final EntityResolver<E> resolver;
+
+	private final int cacheSize;
+
+	/** the shared lock and publisher, or null to create them per list */
+	private final ReadWriteLock lock;
+	private final ListEventPublisher publisher;
+
+	EntityReferenceEventListFactory(EntityResolver<E> resolver, int cacheSize, ReadWriteLock lock,
+			ListEventPublisher publisher) {
+		this.resolver = resolver;
+		this.cacheSize = cacheSize;
+		this.lock = lock;
+		this.publisher = publisher;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public EventList<E> createEventList() {
+		return createEventList(10);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public EventList<E> createEventList(int initalCapacity) {
+		return new EntityReferenceEventList<E>(resolver, cacheSize, initalCapacity, publisher, lock);
+	}
+}
@@ -0,0 +1,25 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.io.Serializable;
+
+/**
+ * Converts between the entities of an {@link EntityReferenceEventList} and
+ * the identifiers it stores instead of them.
+ *
+ * @author Nathan Hapke
+ */
+interface EntityResolver<E> extends Serializable {
+
+	/**
+	 * @return the entity with the given identifier, or an uninitialized proxy
+	 *         for it
+	 */
+	E resolve(long id);
+
+	/**
+	 * @return the identifier of the entity, if it is managed by the current
+	 *         session, so that {@link #resolve(long)} returns the same
+	 *         instance; otherwise null
+	 */
+	Long identify(Object entity);
+}
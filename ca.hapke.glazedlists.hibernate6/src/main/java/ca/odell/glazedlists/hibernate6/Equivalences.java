@@ -0,0 +1,107 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
+
+/**
+ * The strategies that decide whether an element given to
+ * {@link PersistentEventList#updateAll(List)} is the same as the one already
+ * in the list, so that it is neither reported nor written.
+ *
+ * @author Nathan Hapke
+ */
+final class Equivalences {
+
+	/** the mapping value for {@link #IDENTITY} */
+	static final String IDENTITY_NAME = "identity";
+
+	/** the mapping value for {@link #EQUALS} */
+	static final String EQUALS_NAME = "equals";
+
+	/** the mapping value for {@link #entityId(SharedSessionContractImplementor)} */
+	static final String ENTITY_ID_NAME = "entityId";
+
+	/** the same instance */
+	static final BiPredicate<Object, Object> IDENTITY = (oldValue, newValue) -> oldValue == newValue;
+
+	/** equal values, or both null */
+	static final BiPredicate<Object, Object> EQUALS = Objects::equals;
+
+	private Equivalences() {
+	}
+
+	/**
+	 * @return the equivalence named by a mapping parameter: {@value #IDENTITY_NAME},
+	 *         {@value #EQUALS_NAME}, or the class name of a {@link BiPredicate}
+	 *         with a public no-argument constructor; null for
+	 *         {@value #ENTITY_ID_NAME}, which needs a session
+	 */
+	@SuppressWarnings("unchecked")
+	static <E> BiPredicate<? super E, ? super E> forName(String name) {
+		switch (name) {
+		case IDENTITY_NAME:
+			return IDENTITY;
+		case EQUALS_NAME:
+			return EQUALS;
+		case ENTITY_ID_NAME:
+			return null;
+		default:
+			try {
+				return (BiPredicate<? super E, ? super E>) Class.forName(name).getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException | ClassCastException e) {
+				throw new HibernateException("Cannot instantiate equivalence " + name, e);
+			}
+		}
+	}
+
+	/**
+	 * @return an equivalence of entities of the same hierarchy with equal
+	 *         identifiers, whether they are managed, detached or proxies.
+	 *         Entities without an identifier are only the same as themselves.
+	 */
+	static BiPredicate<Object, Object> entityId(SharedSessionContractImplementor session) {
+		return (oldValue, newValue) -> {
+			if (oldValue == newValue) {
+				return true;
+			}
+			if (oldValue == null || newValue == null) {
+				return false;
+			}
+			final EntityPersister oldPersister = getPersister(session, oldValue);
+			final EntityPersister newPersister = getPersister(session, newValue);
+			if (oldPersister == null || newPersister == null
+					|| !oldPersister.getRootEntityName().equals(newPersister.getRootEntityName())) {
+				return false;
+			}
+			final Object oldId = getIdentifier(session, oldPersister, oldValue);
+			return oldId != null && oldId.equals(getIdentifier(session, newPersister, newValue));
+		};
+	}
+
+	/**
+	 * @return the persister of the entity, without initializing a proxy; or
+	 *         null if it isn't an entity
+	 */
+	private static EntityPersister getPersister(SharedSessionContractImplementor session, Object value) {
+		if (value instanceof HibernateProxy) {
+			final LazyInitializer initializer = ((HibernateProxy) value).getHibernateLazyInitializer();
+			return session.getFactory().getMappingMetamodel().findEntityDescriptor(initializer.getEntityName());
+		}
+		return session.getFactory().getMappingMetamodel().findEntityDescriptor(value.getClass());
+	}
+
+	private static Object getIdentifier(SharedSessionContractImplementor session, EntityPersister persister,
+			Object value) {
+		if (value instanceof HibernateProxy) {
+			return ((HibernateProxy) value).getHibernateLazyInitializer().getInternalIdentifier();
+		}
+		return persister.getIdentifier(value, session);
+	}
+}
@@ -0,0 +1,19 @@
+package ca.odell.glazedlists.hibernate6;
+
+/**
+ * A {@link PersistentEventListType} that persists sparse list-index values, so
+ * inserting or removing an element doesn't renumber the rows after it.
+ *
+ * @see PersistentEventListType#useOrderKeyGap(int)
+ *
+ * @author Nathan Hapke
+ */
+public class GapOrderedEventListType<E> extends PersistentEventListType<E> {
+
+	/** the default distance between list-index values */
+	public static final int DEFAULT_GAP = 16;
+
+	public GapOrderedEventListType() {
+		useOrderKeyGap(DEFAULT_GAP);
+	}
+}
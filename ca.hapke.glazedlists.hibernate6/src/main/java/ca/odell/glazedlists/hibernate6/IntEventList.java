@@ -0,0 +1,81 @@
+package ca.odell.glazedlists.hibernate6;
+
+import ca.odell.glazedlists.event.ListEventPublisher;
+import ca.odell.glazedlists.util.concurrent.ReadWriteLock;
+
+/**
+ * A {@link PrimitiveEventList} that stores its elements in an
+ * <code>int[]</code>.
+ *
+ * @author Nathan Hapke
+ */
+public final class IntEventList extends PrimitiveEventList<Integer> {
+
+	public IntEventList() {
+		this(10, null, null);
+	}
+
+	public IntEventList(ListEventPublisher publisher, ReadWriteLock readWriteLock) {
+		this(10, publisher, readWriteLock);
+	}
+
+	public IntEventList(int initialCapacity, ListEventPublisher publisher, ReadWriteLock readWriteLock) {
+		super(initialCapacity, publisher, readWriteLock);
+	}
+
+	@Override
+	Object createArray(int length) {
+		return new int[length];
+	}
+
+	@Override
+	int capacity(Object array) {
+		return ((int[]) array).length;
+	}
+
+	@Override
+	Integer box(Object array, int index) {
+		return Integer.valueOf(((int[]) array)[index]);
+	}
+
+	@Override
+	void unbox(Object array, int index, Integer value) {
+		((int[]) array)[index] = value.intValue();
+	}
+
+	/**
+	 * @return the element at the index, without boxing it
+	 */
+	public int getInt(int index) {
+		checkIndex(index, size);
+		return ((int[]) elements)[index];
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int indexOf(Object object) {
+		if (!(object instanceof Integer))
+			return -1;
+		final int value = ((Integer) object).intValue();
+		final int[] values = (int[]) elements;
+		for (int i = 0; i < size; i++) {
+			if (values[i] == value)
+				return i;
+		}
+		return -1;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int lastIndexOf(Object object) {
+		if (!(object instanceof Integer))
+			return -1;
+		final int value = ((Integer) object).intValue();
+		final int[] values = (int[]) elements;
+		for (int i = size - 1; i >= 0; i--) {
+			if (values[i] == value)
+				return i;
+		}
+		return -1;
+	}
+}
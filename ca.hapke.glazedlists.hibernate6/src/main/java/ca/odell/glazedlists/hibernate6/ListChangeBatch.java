@@ -0,0 +1,158 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import ca.odell.glazedlists.event.ListEvent;
+
+/**
+ * An immutable copy of the changes of a ListEvent, which an
+ * {@link AsyncListEventListener} can read on any thread, after the list has
+ * moved on. The changes are in the order of {@link ListEvent#next()}, so
+ * applying them one by one to a copy of the list brings it up to date.
+ * <p>
+ * A <em>reset</em> batch replaces several batches that didn't fit into the
+ * queue of an {@link AsyncListEventDispatcher}. It holds all elements of the
+ * list instead of the changes.
+ *
+ * @author Nathan Hapke
+ */
+public final class ListChangeBatch<E> {
+
+	private final int[] types;
+	private final int[] indices;
+	private final Object[] values;
+
+	/** all elements of a reset, or null */
+	private final List<E> elements;
+
+	private final long createdNanos;
+
+	private ListChangeBatch(int[] types, int[] indices, Object[] values, List<E> elements, long createdNanos) {
+		this.types = types;
+		this.indices = indices;
+		this.values = values;
+		this.elements = elements;
+		this.createdNanos = createdNanos;
+	}
+
+	/**
+	 * Copies the changes of the event, and the inserted and updated elements.
+	 * Must be called while the event is published.
+	 */
+	static <E> ListChangeBatch<E> copyOf(ListEvent<E> listChanges) {
+		int[] types = new int[8];
+		int[] indices = new int[8];
+		Object[] values = new Object[8];
+		int count = 0;
+		while (listChanges.next()) {
+			if (count == types.length) {
+				types = Arrays.copyOf(types, count * 2);
+				indices = Arrays.copyOf(indices, count * 2);
+				values = Arrays.copyOf(values, count * 2);
+			}
+			final int type = listChanges.getType();
+			final int index = listChanges.getIndex();
+			types[count] = type;
+			indices[count] = index;
+			values[count] = (type == ListEvent.DELETE) ? null : listChanges.getSourceList().get(index);
+			count++;
+		}
+		listChanges.reset();
+		return new ListChangeBatch<E>(Arrays.copyOf(types, count), Arrays.copyOf(indices, count),
+				Arrays.copyOf(values, count), null, System.nanoTime());
+	}
+
+	/**
+	 * Copies all elements of the list.
+	 *
+	 * @param createdNanos when the oldest change it replaces was made
+	 */
+	static <E> ListChangeBatch<E> reset(List<E> list, long createdNanos) {
+		return new ListChangeBatch<E>(new int[0], new int[0], new Object[0],
+				Collections.unmodifiableList(new ArrayList<E>(list)), createdNanos);
+	}
+
+	/**
+	 * @return whether this batch holds all elements rather than changes
+	 */
+	public boolean isReset() {
+		return elements != null;
+	}
+
+	/**
+	 * @return all elements of the list after the changes this batch replaces,
+	 *         if it is a reset; otherwise null
+	 */
+	public List<E> getElements() {
+		return elements;
+	}
+
+	/**
+	 * @return the number of changes, 0 for a reset
+	 */
+	public int getChangeCount() {
+		return types.length;
+	}
+
+	/**
+	 * @return {@link ListEvent#INSERT}, {@link ListEvent#UPDATE} or
+	 *         {@link ListEvent#DELETE}
+	 */
+	public int getType(int change) {
+		return types[change];
+	}
+
+	/**
+	 * @return the index of the change, after the changes before it
+	 */
+	public int getIndex(int change) {
+		return indices[change];
+	}
+
+	/**
+	 * @return the inserted or new element, or null for a delete
+	 */
+	@SuppressWarnings("unchecked")
+	public E getValue(int change) {
+		return (E) values[change];
+	}
+
+	/**
+	 * @return the {@link System#nanoTime()} when the change was made
+	 */
+	public long getCreatedNanos() {
+		return createdNanos;
+	}
+
+	/**
+	 * Brings a copy of the list up to date.
+	 */
+	public void applyTo(List<? super E> copy) {
+		if (elements != null) {
+			copy.clear();
+			copy.addAll(elements);
+			return;
+		}
+		for (int i = 0; i < types.length; i++) {
+			switch (types[i]) {
+			case ListEvent.INSERT:
+				copy.add(indices[i], getValue(i));
+				break;
+			case ListEvent.UPDATE:
+				copy.set(indices[i], getValue(i));
+				break;
+			default:
+				copy.remove(indices[i]);
+			}
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String toString() {
+		return isReset() ? "reset of " + elements.size() + " elements" : types.length + " changes";
+	}
+}
@@ -0,0 +1,260 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Computes a minimal edit script between two lists, using the linear space
+ * variant of Myers' O(ND) difference algorithm. Common prefixes and suffixes
+ * are trimmed before the search, so the typical merge (a handful of elements
+ * inserted, removed or replaced) costs O(n + d).
+ * <p>
+ * The result is reported as a sequence of <em>hunks</em>. Each hunk replaces
+ * a contiguous range of the old list with a contiguous range of the new list;
+ * everything between hunks is unchanged.
+ *
+ * @author Nathan Hapke
+ */
+final class ListDiff<E> {
+
+	/**
+	 * Upper bound on the number of diagonal steps a single middle snake search
+	 * may take, relative to the size of the range. Beyond it, the range is
+	 * reported as one positional hunk instead.
+	 */
+	private static final long COST_LIMIT = 1L << 24;
+
+	private static final int MIN_D_LIMIT = 64;
+
+	private final List<? extends E> a;
+	private final List<? extends E> b;
+
+	/** which elements are the same besides identical ones, or null for none */
+	private final BiPredicate<? super E, ? super E> equivalence;
+
+	/** forward and backward furthest reaching x, indexed by diagonal + offset */
+	private int[] vf;
+	private int[] vb;
+
+	/** hunks as quadruples of [oldStart, oldLength, newStart, newLength] */
+	private int[] hunks = new int[16];
+	private int hunkCount = 0;
+
+	private ListDiff(List<? extends E> a, List<? extends E> b, BiPredicate<? super E, ? super E> equivalence) {
+		this.a = a;
+		this.b = b;
+		this.equivalence = equivalence;
+	}
+
+	/**
+	 * Computes the hunks that turn <code>oldList</code> into
+	 * <code>newList</code>.
+	 */
+	static <E> ListDiff<E> compute(List<? extends E> oldList, List<? extends E> newList) {
+		return compute(oldList, newList, null);
+	}
+
+	/**
+	 * Computes the hunks that turn <code>oldList</code> into
+	 * <code>newList</code>, treating equal elements as the same.
+	 */
+	static <E> ListDiff<E> computeByEquals(List<? extends E> oldList, List<? extends E> newList) {
+		return compute(oldList, newList, Equivalences.EQUALS);
+	}
+
+	/**
+	 * Computes the hunks that turn <code>oldList</code> into
+	 * <code>newList</code>, treating elements the equivalence accepts as the
+	 * same. It is only asked about elements that aren't identical.
+	 *
+	 * @param equivalence the equivalence, or null for identity
+	 */
+	static <E> ListDiff<E> compute(List<? extends E> oldList, List<? extends E> newList,
+			BiPredicate<? super E, ? super E> equivalence) {
+		ListDiff<E> diff = new ListDiff<E>(oldList, newList, equivalence);
+		diff.diff(0, oldList.size(), 0, newList.size());
+		return diff;
+	}
+
+	/**
+	 * @return the key of each element, to compute the hunks between the keys
+	 *         of two lists; null for a null element
+	 */
+	static <E> List<Object> keys(List<? extends E> elements, Function<? super E, ?> key) {
+		final List<Object> keys = new ArrayList<Object>(elements.size());
+		for (E element : elements) {
+			keys.add(element == null ? null : key.apply(element));
+		}
+		return keys;
+	}
+
+	/**
+	 * @return the positions of a list of the given size, as the keys of
+	 *         elements that are matched by position
+	 */
+	static List<Object> positions(int size) {
+		final List<Object> positions = new ArrayList<Object>(size);
+		for (int i = 0; i < size; i++) {
+			positions.add(Integer.valueOf(i));
+		}
+		return positions;
+	}
+
+	/**
+	 * @return the number of hunks, zero if both lists are the same
+	 */
+	int getHunkCount() {
+		return hunkCount;
+	}
+
+	int getOldStart(int hunk) {
+		return hunks[hunk * 4];
+	}
+
+	int getOldLength(int hunk) {
+		return hunks[hunk * 4 + 1];
+	}
+
+	int getNewStart(int hunk) {
+		return hunks[hunk * 4 + 2];
+	}
+
+	int getNewLength(int hunk) {
+		return hunks[hunk * 4 + 3];
+	}
+
+	private boolean same(int x, int y) {
+		final E oldValue = a.get(x);
+		final E newValue = b.get(y);
+		return oldValue == newValue || (equivalence != null && equivalence.test(oldValue, newValue));
+	}
+
+	private void diff(int aLo, int aHi, int bLo, int bHi) {
+		// trim the common prefix and suffix
+		while (aLo < aHi && bLo < bHi && same(aLo, bLo)) {
+			aLo++;
+			bLo++;
+		}
+		while (aLo < aHi && bLo < bHi && same(aHi - 1, bHi - 1)) {
+			aHi--;
+			bHi--;
+		}
+
+		if (aLo == aHi || bLo == bHi) {
+			if (aLo != aHi || bLo != bHi)
+				addHunk(aLo, aHi - aLo, bLo, bHi - bLo);
+			return;
+		}
+
+		int[] snake = middleSnake(aLo, aHi, bLo, bHi);
+		if (snake == null) {
+			// too expensive to search: treat the range as positional changes
+			addHunk(aLo, aHi - aLo, bLo, bHi - bLo);
+			return;
+		}
+		diff(aLo, snake[0], bLo, snake[1]);
+		diff(snake[2], aHi, snake[3], bHi);
+	}
+
+	/**
+	 * Finds the middle snake of an optimal path through the given range. Both
+	 * ranges must be non-empty and must differ in their first and last
+	 * elements.
+	 *
+	 * @return the snake as [xStart, yStart, xEnd, yEnd] in list coordinates, or
+	 *         <code>null</code> if the search exceeded the cost limit
+	 */
+	private int[] middleSnake(int aLo, int aHi, int bLo, int bHi) {
+		final int n = aHi - aLo;
+		final int m = bHi - bLo;
+		final int delta = n - m;
+		final boolean odd = (delta & 1) != 0;
+		final int max = (n + m + 1) / 2;
+		final int offset = max + 1;
+		final int dLimit = (int) Math.max(MIN_D_LIMIT, Math.min(max, COST_LIMIT / (n + m)));
+
+		int length = 2 * offset + 1;
+		if (vf == null || vf.length < length) {
+			vf = new int[length];
+			vb = new int[length];
+		}
+		vf[offset + 1] = 0;
+		vb[offset + 1] = 0;
+
+		for (int d = 0; d <= max; d++) {
+			if (d > dLimit)
+				return null;
+
+			// forward search
+			for (int k = -d; k <= d; k += 2) {
+				int x;
+				if (k == -d || (k != d && vf[offset + k - 1] < vf[offset + k + 1])) {
+					x = vf[offset + k + 1];
+				} else {
+					x = vf[offset + k - 1] + 1;
+				}
+				int y = x - k;
+				int xStart = x;
+				int yStart = y;
+				while (x < n && y < m && same(aLo + x, bLo + y)) {
+					x++;
+					y++;
+				}
+				vf[offset + k] = x;
+
+				int c = delta - k;
+				if (odd && c >= -(d - 1) && c <= d - 1 && x + vb[offset + c] >= n) {
+					return new int[] { aLo + xStart, bLo + yStart, aLo + x, bLo + y };
+				}
+			}
+
+			// backward search, on the reversed lists
+			for (int c = -d; c <= d; c += 2) {
+				int x;
+				if (c == -d || (c != d && vb[offset + c - 1] < vb[offset + c + 1])) {
+					x = vb[offset + c + 1];
+				} else {
+					x = vb[offset + c - 1] + 1;
+				}
+				int y = x - c;
+				int xStart = x;
+				int yStart = y;
+				while (x < n && y < m && same(aHi - 1 - x, bHi - 1 - y)) {
+					x++;
+					y++;
+				}
+				vb[offset + c] = x;
+
+				int k = delta - c;
+				if (!odd && k >= -d && k <= d && x + vf[offset + k] >= n) {
+					return new int[] { aHi - x, bHi - y, aHi - xStart, bHi - yStart };
+				}
+			}
+		}
+		throw new IllegalStateException("no middle snake");
+	}
+
+	private void addHunk(int oldStart, int oldLength, int newStart, int newLength) {
+		// merge with the previous hunk when they touch
+		if (hunkCount > 0) {
+			int last = (hunkCount - 1) * 4;
+			if (hunks[last] + hunks[last + 1] == oldStart && hunks[last + 2] + hunks[last + 3] == newStart) {
+				hunks[last + 1] += oldLength;
+				hunks[last + 3] += newLength;
+				return;
+			}
+		}
+		if (hunks.length < (hunkCount + 1) * 4) {
+			hunks = Arrays.copyOf(hunks, hunks.length * 2);
+		}
+		int next = hunkCount * 4;
+		hunks[next] = oldStart;
+		hunks[next + 1] = oldLength;
+		hunks[next + 2] = newStart;
+		hunks[next + 3] = newLength;
+		hunkCount++;
+	}
+}
@@ -0,0 +1,114 @@
+package ca.odell.glazedlists.hibernate6;
+
+import ca.odell.glazedlists.util.concurrent.Lock;
+import ca.odell.glazedlists.util.concurrent.ReadWriteLock;
+
+/**
+ * Takes the write lock of one list and the read lock of another without
+ * risking a deadlock.
+ * <p>
+ * The two locks are always acquired in the same global order, determined by
+ * their identity hash codes, so two threads copying between the same lists in
+ * opposite directions can't each hold the lock the other one waits for. When
+ * both lists share a single {@link ReadWriteLock}, only its write lock is
+ * taken, since the write lock also excludes readers.
+ *
+ * @author Nathan Hapke
+ */
+final class LockCoordinator implements AutoCloseable {
+
+	/** serializes acquisitions of distinct locks with equal hash codes */
+	private static final Object TIE_LOCK = new Object();
+
+	private final Lock first;
+	private final Lock second;
+	private final long waitNanos;
+	private final boolean contended;
+
+	private LockCoordinator(Lock first, Lock second, long start, boolean contended) {
+		this.first = first;
+		this.second = second;
+		this.waitNanos = System.nanoTime() - start;
+		this.contended = contended;
+	}
+
+	/**
+	 * Acquires the write lock of <code>target</code> and the read lock of
+	 * <code>source</code>. Close the result, typically with a
+	 * try-with-resources statement, to release both.
+	 */
+	static LockCoordinator writeAndRead(ReadWriteLock target, ReadWriteLock source) {
+		final long start = System.nanoTime();
+		final Lock write = target.writeLock();
+		if (target == source) {
+			return new LockCoordinator(write, null, start, lock(write));
+		}
+
+		final Lock read = source.readLock();
+		final int targetHash = System.identityHashCode(target);
+		final int sourceHash = System.identityHashCode(source);
+		if (targetHash < sourceHash) {
+			return new LockCoordinator(write, read, start, lockBoth(write, read));
+		} else if (targetHash > sourceHash) {
+			return new LockCoordinator(read, write, start, lockBoth(read, write));
+		}
+		final boolean contended;
+		synchronized (TIE_LOCK) {
+			contended = lockBoth(write, read);
+		}
+		return new LockCoordinator(write, read, start, contended);
+	}
+
+	/**
+	 * @return whether either lock was held by another thread
+	 */
+	private static boolean lockBoth(Lock first, Lock second) {
+		final boolean contended = lock(first);
+		try {
+			return lock(second) || contended;
+		} catch (RuntimeException | Error e) {
+			first.unlock();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return whether the lock was held by another thread
+	 */
+	private static boolean lock(Lock lock) {
+		if (lock.tryLock()) {
+			return false;
+		}
+		lock.lock();
+		return true;
+	}
+
+	/**
+	 * @return how long it took to acquire the locks, in nanoseconds
+	 */
+	long getWaitNanos() {
+		return waitNanos;
+	}
+
+	/**
+	 * @return whether another thread held one of the locks, so this one had to
+	 *         wait
+	 */
+	boolean isContended() {
+		return contended;
+	}
+
+	/**
+	 * Releases the locks, in the reverse order of their acquisition.
+	 */
+	@Override
+	public void close() {
+		try {
+			if (second != null) {
+				second.unlock();
+			}
+		} finally {
+			first.unlock();
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package ca.odell.glazedlists.hibernate6;
+
+import ca.odell.glazedlists.event.ListEventPublisher;
+import ca.odell.glazedlists.util.concurrent.ReadWriteLock;
+
+/**
+ * A {@link PrimitiveEventList} that stores its elements in an
+ * <code>long[]</code>.
+ *
+ * @author Nathan Hapke
+ */
+public final class LongEventList extends PrimitiveEventList<Long> {
+
+	public LongEventList() {
+		this(10, null, null);
+	}
+
+	public LongEventList(ListEventPublisher publisher, ReadWriteLock readWriteLock) {
+		this(10, publisher, readWriteLock);
+	}
+
+	public LongEventList(int initialCapacity, ListEventPublisher publisher, ReadWriteLock readWriteLock) {
+		super(initialCapacity, publisher, readWriteLock);
+	}
+
+	@Override
+	Object createArray(int length) {
+		return new long[length];
+	}
+
+	@Override
+	int capacity(Object array) {
+		return ((long[]) array).length;
+	}
+
+	@Override
+	Long box(Object array, int index) {
+		return Long.valueOf(((long[]) array)[index]);
+	}
+
+	@Override
+	void unbox(Object array, int index, Long value) {
+		((long[]) array)[index] = value.longValue();
+	}
+
+	/**
+	 * @return the element at the index, without boxing it
+	 */
+	public long getLong(int index) {
+		checkIndex(index, size);
+		return ((long[]) elements)[index];
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int indexOf(Object object) {
+		if (!(object instanceof Long))
+			return -1;
+		final long value = ((Long) object).longValue();
+		final long[] values = (long[]) elements;
+		for (int i = 0; i < size; i++) {
+			if (values[i] == value)
+				return i;
+		}
+		return -1;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int lastIndexOf(Object object) {
+		if (!(object instanceof Long))
+			return -1;
+		final long value = ((Long) object).longValue();
+		final long[] values = (long[]) elements;
+		for (int i = size - 1; i >= 0; i--) {
+			if (values[i] == value)
+				return i;
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,26 @@
+package ca.odell.glazedlists.hibernate6;
+
+/**
+ * A {@link PersistentEventListType} for value collections of Longs, which
+ * stores the elements in an <code>long[]</code> instead of boxing each of them.
+ * Null elements are not supported, and neither are gaps in the list-index
+ * values, unless {@link #useOrderKeyGap(int) an order key gap} is used.
+ *
+ * <pre>
+ * &lt;list name="values" table="VALUES" collection-type="ca.odell.glazedlists.hibernate6.LongEventListType"&gt;
+ *     &lt;key column="OWNER_ID"/&gt;
+ *     &lt;list-index column="DISPLAY_ORDER"/&gt;
+ *     &lt;element column="VAL" type="long"/&gt;
+ * &lt;/list&gt;
+ * </pre>
+ *
+ * @see LongEventList
+ *
+ * @author Nathan Hapke
+ */
+public class LongEventListType extends PersistentEventListType<Long> {
+
+	public LongEventListType() {
+		setListFactory(new PrimitiveEventListFactory<Long>(Long.class));
+	}
+}
@@ -0,0 +1,271 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ca.odell.glazedlists.event.ListEvent;
+
+/**
+ * The sparse values persisted in the list-index column of a collection, one
+ * per element, in ascending order.
+ * <p>
+ * New elements are given a key between those of their neighbours, so an
+ * insert or delete doesn't move the keys of any other element. Only when two
+ * neighbours have consecutive keys are the keys of a small window around the
+ * insert spread out again.
+ * <p>
+ * Hibernate loads the collection into a list as long as the largest key, so
+ * the keys are spread out again from the start once the largest grows far
+ * beyond what the size of the list needs, as it does when elements are
+ * appended at the end and removed from the start.
+ *
+ * @author Nathan Hapke
+ */
+final class OrderKeys implements Serializable {
+
+	private static final long serialVersionUID = 0L;
+
+	/**
+	 * how many times the keys of an evenly spread list the largest key may
+	 * reach
+	 */
+	private static final int MAX_SPREAD = 4;
+
+	private final int gap;
+
+	/** the key of every element, ascending */
+	private int[] keys;
+	private int size;
+
+	/** the keys at the time of the last snapshot, aligned with the snapshot */
+	private int[] snapshotKeys = new int[0];
+
+	OrderKeys(int gap) {
+		if (gap < 2) {
+			throw new IllegalArgumentException("Gap must be at least 2: " + gap);
+		}
+		this.gap = gap;
+		this.keys = new int[10];
+	}
+
+	/**
+	 * Assigns evenly spaced keys to a list of the given size.
+	 */
+	void spread(int newSize) {
+		keys = new int[Math.max(newSize, 10)];
+		size = newSize;
+		respace(0, newSize, -1, gap);
+	}
+
+	/**
+	 * Reads the keys from a list loaded by Hibernate, where each element sits
+	 * at the position of its key and the unused keys are <code>null</code>.
+	 *
+	 * @return the loaded elements without the gaps
+	 */
+	<E> List<E> load(List<E> loaded) {
+		final List<E> elements = new ArrayList<E>();
+		keys = new int[10];
+		size = 0;
+		for (int i = 0; i < loaded.size(); i++) {
+			E element = loaded.get(i);
+			if (element != null) {
+				elements.add(element);
+				append(i);
+			}
+		}
+		return elements;
+	}
+
+	/**
+	 * @return a copy of the keys, as stored in the second level cache
+	 */
+	int[] toArray() {
+		return Arrays.copyOf(keys, size);
+	}
+
+	/**
+	 * Restores keys previously returned by {@link #toArray()}.
+	 */
+	void restore(int[] cached) {
+		keys = Arrays.copyOf(cached, Math.max(cached.length, 10));
+		size = cached.length;
+	}
+
+	int size() {
+		return size;
+	}
+
+	int get(int index) {
+		if (index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return keys[index];
+	}
+
+	/**
+	 * @return the index of the element with the given key, or a negative
+	 *         number if there is none
+	 */
+	int indexOf(int key) {
+		return Arrays.binarySearch(keys, 0, size, key);
+	}
+
+	/**
+	 * Remembers the current keys as those of the snapshot.
+	 */
+	void takeSnapshot() {
+		snapshotKeys = Arrays.copyOf(keys, size);
+	}
+
+	/**
+	 * @return the position in the snapshot of the element with the given key,
+	 *         or a negative number if the snapshot has none
+	 */
+	int snapshotIndexOf(int key) {
+		return Arrays.binarySearch(snapshotKeys, key);
+	}
+
+	int getSnapshotKey(int snapshotIndex) {
+		return snapshotKeys[snapshotIndex];
+	}
+
+	/**
+	 * @return <code>true</code> if the keys equal those of the snapshot
+	 */
+	boolean equalsSnapshot() {
+		return Arrays.equals(keys, 0, size, snapshotKeys, 0, snapshotKeys.length);
+	}
+
+	/**
+	 * Keeps the keys in step with the changes described by the given event.
+	 *
+	 * @return the lowest index whose key changed, or {@link Integer#MAX_VALUE}
+	 */
+	int record(ListEvent<?> listChanges) {
+		if (listChanges.isReordering()) {
+			respace(0, size, -1, gap);
+			return 0;
+		}
+		int lowest = Integer.MAX_VALUE;
+		while (listChanges.next()) {
+			final int index = listChanges.getIndex();
+			switch (listChanges.getType()) {
+			case ListEvent.INSERT:
+				lowest = Math.min(lowest, insert(index));
+				break;
+			case ListEvent.DELETE:
+				delete(index);
+				break;
+			default:
+				// an updated element keeps its key
+				break;
+			}
+		}
+		if (isSparse()) {
+			respace(0, size, -1, gap);
+			return 0;
+		}
+		return lowest;
+	}
+
+	/**
+	 * @return whether the largest key is far beyond that of an evenly spread
+	 *         list
+	 */
+	private boolean isSparse() {
+		return size > 0 && keys[size - 1] > (long) MAX_SPREAD * gap * (size + 1);
+	}
+
+	/**
+	 * Gives a key to an element inserted at the given index.
+	 *
+	 * @return the lowest index whose key was assigned or changed
+	 */
+	int insert(int index) {
+		final int lower = index > 0 ? keys[index - 1] : -1;
+		if (index == size) {
+			if (lower > Integer.MAX_VALUE - gap) {
+				// out of keys at the end: start over
+				makeRoom(index);
+				respace(0, size, -1, gap);
+				return 0;
+			}
+			append(index == 0 ? gap : lower + gap);
+			return index;
+		}
+
+		final int upper = keys[index];
+		makeRoom(index);
+		if (upper - lower >= 2) {
+			keys[index] = lower + (upper - lower) / 2;
+			return index;
+		}
+		return rebalance(index);
+	}
+
+	/**
+	 * Forgets the key of an element removed from the given index.
+	 */
+	void delete(int index) {
+		System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+		size--;
+	}
+
+	private void append(int key) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+		}
+		keys[size++] = key;
+	}
+
+	private void makeRoom(int index) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+		}
+		System.arraycopy(keys, index, keys, index + 1, size - index);
+		size++;
+	}
+
+	/**
+	 * Spreads out the keys of the smallest window around the given index that
+	 * has enough unused keys, doubling the window until it does.
+	 *
+	 * @return the first index of the window
+	 */
+	private int rebalance(int index) {
+		int lo = index;
+		int hi = index + 1;
+		for (int grow = 1;; grow *= 2) {
+			lo = Math.max(0, lo - grow);
+			hi = Math.min(size, hi + grow);
+			final int count = hi - lo;
+			final long lower = lo > 0 ? keys[lo - 1] : -1;
+			if (hi == size) {
+				if (lower + (long) (count + 1) * gap <= Integer.MAX_VALUE) {
+					respace(lo, hi, (int) lower, gap);
+					return lo;
+				}
+			} else {
+				final long available = keys[hi] - lower;
+				if (available >= 2L * (count + 1)) {
+					respace(lo, hi, (int) lower, (int) (available / (count + 1)));
+					return lo;
+				}
+			}
+			if (lo == 0 && hi == size) {
+				// every key is in use: spread the whole list as far as possible
+				respace(0, size, -1, (int) Math.max(1, Math.min(gap, (Integer.MAX_VALUE - 1L) / (size + 1))));
+				return 0;
+			}
+		}
+	}
+
+	private void respace(int from, int to, int lower, int step) {
+		for (int i = from; i < to; i++) {
+			keys[i] = lower + step * (i - from + 1);
+		}
+	}
+}
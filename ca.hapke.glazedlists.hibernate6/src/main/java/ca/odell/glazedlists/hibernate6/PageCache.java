@@ -0,0 +1,92 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The pages of an extra lazy collection that were read by position, before
+ * the collection is initialized. The least recently used page is evicted once
+ * more than the given number of pages are cached. The pages are released
+ * when the collection is flushed, and when its size differs from the size
+ * they were read at, since the last page may have been short.
+ *
+ * @author Nathan Hapke
+ */
+final class PageCache {
+
+	/**
+	 * Reads a page of elements from the database.
+	 */
+	interface PageLoader {
+		/**
+		 * @return the elements at the positions <code>first</code> to
+		 *         <code>first + count - 1</code>
+		 */
+		Object[] load(int first, int count);
+	}
+
+	private final int pageSize;
+
+	/** the pages by number, least recently used first */
+	private final Map<Integer, Object[]> pages;
+
+	/** the number of elements of the collection when the pages were read */
+	private int cachedSize = -1;
+
+	private int loads = 0;
+
+	PageCache(int pageSize, final int cachedPages) {
+		if (pageSize < 1 || cachedPages < 1) {
+			throw new IllegalArgumentException("Page size and cached pages must be positive: " + pageSize + ", "
+					+ cachedPages);
+		}
+		this.pageSize = pageSize;
+		this.pages = new LinkedHashMap<Integer, Object[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 0L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest) {
+				return size() > cachedPages;
+			}
+		};
+	}
+
+	/**
+	 * @param index the position of the element
+	 * @param size  the number of elements of the collection
+	 * @return the element, from the cache or from the page the loader reads
+	 */
+	synchronized Object get(int index, int size, PageLoader loader) {
+		if (size != cachedSize) {
+			pages.clear();
+			cachedSize = size;
+		}
+		final Integer page = Integer.valueOf(index / pageSize);
+		Object[] elements = pages.get(page);
+		if (elements == null || index % pageSize >= elements.length) {
+			final int first = page.intValue() * pageSize;
+			elements = loader.load(first, Math.min(pageSize, size - first));
+			pages.put(page, elements);
+			loads++;
+		}
+		return elements[index % pageSize];
+	}
+
+	/**
+	 * Releases all pages, once the collection is initialized or flushed.
+	 */
+	synchronized void clear() {
+		pages.clear();
+	}
+
+	synchronized int getCachedPages() {
+		return pages.size();
+	}
+
+	/**
+	 * @return the number of pages read so far
+	 */
+	synchronized int getLoads() {
+		return loads;
+	}
+}
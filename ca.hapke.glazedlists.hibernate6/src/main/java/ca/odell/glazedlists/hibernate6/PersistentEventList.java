@@ -7,14 +7,31 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import org.hibernate.FlushMode;
+import org.hibernate.HibernateException;
 import org.hibernate.collection.spi.PersistentList;
+import org.hibernate.engine.spi.CollectionEntry;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.metamodel.mapping.PluralAttributeMapping;
 import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.type.Type;
 
 import ca.odell.glazedlists.BasicEventList;
 import ca.odell.glazedlists.EventList;
@@ -22,7 +39,10 @@ import ca.odell.glazedlists.event.ListEvent;
 import ca.odell.glazedlists.event.ListEventAssembler;
 import ca.odell.glazedlists.event.ListEventListener;
 import ca.odell.glazedlists.event.ListEventPublisher;
+import ca.odell.glazedlists.util.concurrent.Lock;
 import ca.odell.glazedlists.util.concurrent.ReadWriteLock;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
 
 /**
  * A Hibernate persistent list wrapper for an {@link EventList}.
@@ -39,11 +59,60 @@ public final class PersistentEventList<E> extends PersistentList<E>
 
 	private static final long serialVersionUID = 0L;
 
-	private static final boolean DEBUG = true;
+	private static final Logger LOG = Logger.getLogger(PersistentEventList.class.getName());
+
+	/** replaces an element with an equal key if it isn't equal itself */
+	private static final BiPredicate<Object, Object> NOT_EQUAL = (oldValue, newValue) -> !Objects.equals(oldValue,
+			newValue);
 
 	/** the change event and notification system */
 	protected transient ListEventAssembler<E> updates;
 
+	/** the indices that may differ from Hibernate's snapshot */
+	private final ChangeJournal journal = new ChangeJournal();
+
+	/** the persisted list-index values, or null if they are the dense positions */
+	private OrderKeys orderKeys;
+
+	/** whether to index the elements, once their type is known */
+	private boolean elementIndexRequested = false;
+
+	/** notified about the work done by this list, or null */
+	private transient PersistentEventListObserver observer;
+
+	/** the changes counted during updateAll, or -1 while they aren't counted */
+	private transient int pendingChanges = -1;
+
+	/** the statistics this list is tracked by, or null */
+	private transient CollectionStatistics statistics;
+
+	/** the number of listeners, counted only while tracked by statistics */
+	private transient AtomicInteger listenerCount;
+
+	/** the listener that records changes of a shared assembler, or null */
+	private transient ChangeRecorder recorder;
+
+	/** whether dispose releases the elements of the delegate */
+	private boolean releaseOnDispose = false;
+
+	/** whether dispose detached this list, which then records no changes */
+	private boolean disposed = false;
+
+	/** the pages read by position while uninitialized, or null */
+	private transient PageCache pages;
+
+	/** which elements updateAll keeps, besides identical ones; null for none */
+	private transient BiPredicate<? super E, ? super E> equivalence;
+
+	/** whether the changes of a transaction are published when it completes */
+	private transient boolean transactionEvents = false;
+
+	/** whether an event is open until the current transaction completes */
+	private transient boolean transactionEventOpen = false;
+
+	/** the size of the delegate when the open transaction event began */
+	private transient int transactionStartSize;
+
 	/**
 	 * Constructor with session.
 	 *
@@ -56,9 +125,9 @@ public final class PersistentEventList<E> extends PersistentList<E>
 		final EventList<E> delegate = listFactory.createEventList();
 
 		// instantiate list here to avoid NullPointerExceptions with lazy loading
-		updates = new ListEventAssembler<E>(this, delegate.getPublisher());
-		delegate.addListEventListener(this);
+		connect(delegate);
 		list = delegate;
+		track();
 	}
 
 	/**
@@ -73,8 +142,297 @@ public final class PersistentEventList<E> extends PersistentList<E>
 			throw new IllegalArgumentException("EventList parameter may not be null");
 		}
 
-		updates = new ListEventAssembler<E>(this, newList.getPublisher());
-		newList.addListEventListener(this);
+		connect(newList);
+		track();
+	}
+
+	/**
+	 * Registers this list with the enabled {@link CollectionStatistics}, if it
+	 * is sampled.
+	 */
+	private void track() {
+		statistics = CollectionStatistics.track(this);
+		if (statistics != null) {
+			listenerCount = new AtomicInteger();
+		}
+	}
+
+	/**
+	 * @return whether {@link #dispose()} released the elements of this list
+	 */
+	boolean isReleased() {
+		return disposed && releaseOnDispose && ownsStorage();
+	}
+
+	/**
+	 * @return whether the delegate is one of the lists of this package, whose
+	 *         dispose releases the elements
+	 */
+	private boolean ownsStorage() {
+		return list instanceof UnderlyingPersistentEventList || list instanceof PrimitiveEventList
+				|| list instanceof EntityReferenceEventList;
+	}
+
+	/**
+	 * @return the number of listeners, if tracked by statistics, or else 0
+	 */
+	int getListenerCount() {
+		return (listenerCount == null) ? 0 : listenerCount.get();
+	}
+
+	/**
+	 * @return whether the element at the given index may differ from
+	 *         Hibernate's snapshot
+	 */
+	boolean isRecordedChange(int index) {
+		return journal.isDirty(index);
+	}
+
+	/**
+	 * @return the number of elements, or -1 if this list isn't initialized;
+	 *         unlike {@link #size()}, this never reads from the database
+	 */
+	int getDelegateSize() {
+		return wasInitialized() ? list.size() : -1;
+	}
+
+	/**
+	 * Publishes the changes of the delegate as changes of this list.
+	 * <p>
+	 * An {@link UnderlyingPersistentEventList} without listeners of its own
+	 * builds its events directly for this list's listeners, so each change is
+	 * assembled once. Any other EventList is listened to, and its events are
+	 * forwarded.
+	 */
+	private void connect(EventList<E> delegate) {
+		updates = publishAs(delegate, this);
+		if (updates != null) {
+			recorder = new ChangeRecorder();
+			updates.addListEventListener(recorder);
+			return;
+		}
+		updates = new ListEventAssembler<E>(this, delegate.getPublisher());
+		delegate.addListEventListener(this);
+	}
+
+	/**
+	 * @return the assembler the delegate now publishes its events with, as
+	 *         coming from the given list; or null if it can't
+	 * @see UnderlyingPersistentEventList#publishAs(EventList)
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static <E> ListEventAssembler<E> publishAs(EventList<E> delegate, EventList<E> owner) {
+		if (delegate instanceof UnderlyingPersistentEventList) {
+			return ((UnderlyingPersistentEventList<E>) delegate).publishAs(owner);
+		} else if (delegate instanceof PrimitiveEventList) {
+			return ((PrimitiveEventList) delegate).publishAs(owner);
+		} else if (delegate instanceof EntityReferenceEventList) {
+			return ((EntityReferenceEventList) delegate).publishAs(owner);
+		}
+		return null;
+	}
+
+	/**
+	 * Lets the delegate publish its events again, and forwards them, so that
+	 * each change is recorded when it is made, even while this list's event
+	 * is held open. The listeners of this list are kept, since they are
+	 * registered with the publisher for this list.
+	 */
+	private void forwardDelegateEvents() {
+		final EventList<E> delegate = (EventList<E>) list;
+		updates.removeListEventListener(recorder);
+		recorder = null;
+		publishAs(delegate, delegate);
+		updates = new ListEventAssembler<E>(this, delegate.getPublisher());
+		delegate.addListEventListener(this);
+	}
+
+	/**
+	 * Persists sparse list-index values with the given gap between them,
+	 * instead of each element's position.
+	 *
+	 * @see PersistentEventListType#useOrderKeyGap(int)
+	 */
+	void useOrderKeys(int gap) {
+		orderKeys = new OrderKeys(gap);
+		if (wasInitialized()) {
+			orderKeys.spread(list.size());
+		}
+	}
+
+	/**
+	 * Notifies the given observer about the work done by this list.
+	 *
+	 * @see PersistentEventListType#useObserver(PersistentEventListObserver)
+	 */
+	void useObserver(PersistentEventListObserver observer) {
+		this.observer = observer;
+	}
+
+	/**
+	 * Lets {@link #dispose()} release the elements of the delegate.
+	 *
+	 * @see PersistentEventListType#useReleaseOnDispose(boolean)
+	 */
+	void useReleaseOnDispose() {
+		releaseOnDispose = true;
+	}
+
+	/**
+	 * Reads the elements by page while this list is an uninitialized extra
+	 * lazy collection, instead of one at a time.
+	 *
+	 * @see PersistentEventListType#useExtraLazyPages(int, int)
+	 */
+	void usePages(int pageSize, int cachedPages) {
+		pages = new PageCache(pageSize, cachedPages);
+	}
+
+	/**
+	 * Indexes the elements of the underlying list, to speed up
+	 * {@link #containsElement(Object)} and {@link #indexOfElement(Object)}.
+	 *
+	 * @see PersistentEventListType#useElementIndex(boolean)
+	 */
+	void useElementIndex() {
+		elementIndexRequested = true;
+	}
+
+	/**
+	 * Lets {@link #updateAll(List)} keep the old elements that the equivalence
+	 * accepts as the same as the new ones, without an event or a write. It is
+	 * also what decides whether an element with an unchanged key is replaced.
+	 *
+	 * @param equivalence the equivalence, or null for identity
+	 */
+	void useEquivalence(BiPredicate<? super E, ? super E> equivalence) {
+		this.equivalence = equivalence;
+	}
+
+	/**
+	 * Collects the changes made during a transaction into one ListEvent,
+	 * published when it completes. A shared assembler would hold back the
+	 * changes from the journal too, until after the flush, so the events of
+	 * the delegate are forwarded instead.
+	 *
+	 * @see PersistentEventListType#useTransactionEvents(boolean)
+	 */
+	void useTransactionEvents() {
+		transactionEvents = true;
+		if (recorder != null) {
+			forwardDelegateEvents();
+		}
+	}
+
+	/**
+	 * Opens an event that collects the changes of this list until the
+	 * current transaction completes, if configured and not open yet. Called
+	 * before every change made through the methods of this list, with the
+	 * write lock held; changes made through its iterators and sublists are
+	 * published right away, unless the event is open already.
+	 */
+	private void beginTransactionEvent() {
+		if (!transactionEvents || transactionEventOpen) {
+			return;
+		}
+		final SharedSessionContractImplementor session = getSession();
+		if (session == null || !session.isTransactionInProgress()) {
+			return;
+		}
+		session.accessTransaction().registerSynchronization(new TransactionEventPublisher());
+		transactionStartSize = list.size();
+		updates.beginEvent(true);
+		transactionEventOpen = true;
+	}
+
+	/**
+	 * Publishes the changes collected during the transaction. After a
+	 * rollback, they are dropped instead. Hibernate doesn't revert the
+	 * elements in memory though, so the listeners are told that all elements
+	 * were replaced, to match this list again.
+	 */
+	void commitTransactionEvent(boolean committed) {
+		final Lock lock = getReadWriteLock().writeLock();
+		lock.lock();
+		try {
+			if (!transactionEventOpen) {
+				return;
+			}
+			transactionEventOpen = false;
+			if (committed) {
+				updates.commitEvent();
+				return;
+			}
+			if (LOG.isLoggable(Level.FINE)) {
+				LOG.fine("Dropping the changes of a rolled back transaction, and replacing all elements");
+			}
+			updates.discardEvent();
+			final int size = list.size();
+			if (transactionStartSize == 0 && size == 0) {
+				return;
+			}
+			updates.beginEvent();
+			if (transactionStartSize > 0) {
+				updates.addDelete(0, transactionStartSize - 1);
+			}
+			if (size > 0) {
+				updates.addInsert(0, size - 1);
+			}
+			updates.commitEvent();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Resolves and holds every element of an {@link EntityReferenceEventList}
+	 * delegate, so that it stays usable once its session is closed.
+	 */
+	void holdEntityReferences() {
+		if (wasInitialized() && list instanceof EntityReferenceEventList) {
+			((EntityReferenceEventList<E>) list).holdAll();
+		}
+	}
+
+	/**
+	 * Creates the requested element index, now that the element type is known.
+	 */
+	private void createElementIndex(CollectionPersister persister) {
+		if (elementIndexRequested && list instanceof UnderlyingPersistentEventList) {
+			((UnderlyingPersistentEventList<E>) list).useElementIndex(persister.getElementType().isEntityType());
+		}
+	}
+
+	/**
+	 * @return the underlying list, if it is initialized and has an element
+	 *         index; otherwise null
+	 */
+	private UnderlyingPersistentEventList<E> getIndexedList() {
+		if (wasInitialized() && list instanceof UnderlyingPersistentEventList) {
+			UnderlyingPersistentEventList<E> underlying = (UnderlyingPersistentEventList<E>) list;
+			if (underlying.hasElementIndex()) {
+				return underlying;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Like {@link #contains(Object)}, but uses the element index if there is
+	 * one.
+	 */
+	boolean containsElement(Object element) {
+		final UnderlyingPersistentEventList<E> indexed = getIndexedList();
+		return indexed == null ? contains(element) : indexed.containsElement(element);
+	}
+
+	/**
+	 * Like {@link #indexOf(Object)}, but uses the element index if there is
+	 * one.
+	 */
+	int indexOfElement(Object element) {
+		final UnderlyingPersistentEventList<E> indexed = getIndexedList();
+		return indexed == null ? indexOf(element) : indexed.indexOfElement(element);
 	}
 
 	/** {@inheritDoc} */
@@ -93,12 +451,32 @@ public final class PersistentEventList<E> extends PersistentList<E>
 	@Override
 	public void addListEventListener(ListEventListener<? super E> listChangeListener) {
 		updates.addListEventListener(listChangeListener);
+		if (listenerCount != null) {
+			listenerCount.incrementAndGet();
+		}
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public void removeListEventListener(ListEventListener<? super E> listChangeListener) {
 		updates.removeListEventListener(listChangeListener);
+		if (listenerCount != null) {
+			listenerCount.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Delivers the changes of this list to the listener on the executor,
+	 * rather than on the thread that changed it, while the write lock is held.
+	 *
+	 * @param capacity the number of batches queued before they are coalesced
+	 * @return the dispatcher, which measures the listener's lag and is
+	 *         disposed to remove it
+	 * @see AsyncListEventDispatcher
+	 */
+	public AsyncListEventDispatcher<E> addAsyncListEventListener(AsyncListEventListener<E> listener,
+			Executor executor, int capacity) {
+		return new AsyncListEventDispatcher<E>(this, listener, executor, capacity);
 	}
 
 	/** {@inheritDoc} */
@@ -108,50 +486,669 @@ public final class PersistentEventList<E> extends PersistentList<E>
 		// (initialization should always appear to be transparent and thus should not
 		// produce ListEvents)
 		if (wasInitialized()) {
-			updates.forwardEvent(listChanges);
+			final CollectionEvents.ListChanged event = new CollectionEvents.ListChanged();
+			event.begin();
+			recordChanges(listChanges);
+			// nobody would receive the forwarded event
+			final int listeners = updates.getListEventListeners().size();
+			if (listeners > 0) {
+				updates.forwardEvent(listChanges);
+			}
+			event.end();
+			if (event.shouldCommit()) {
+				commitListChanged(event, listChanges, listeners, true);
+			}
 		}
 	}
 
+	/**
+	 * Notes the changed indices in the journal and the order keys, and leaves
+	 * the event reset for the next reader.
+	 */
+	private void recordChanges(ListEvent<E> listChanges) {
+		journal.record(listChanges);
+		listChanges.reset();
+		if (orderKeys != null) {
+			journal.moved(orderKeys.record(listChanges));
+			listChanges.reset();
+		}
+		if (pendingChanges >= 0) {
+			pendingChanges += CollectionEvents.countChanges(listChanges);
+		}
+		if (statistics != null) {
+			statistics.eventPublished();
+		}
+	}
+
+	private void commitListChanged(CollectionEvents.ListChanged event, ListEvent<E> listChanges, int listeners,
+			boolean forwarded) {
+		event.describe(this);
+		event.listeners = listeners;
+		event.blocks = CollectionEvents.countBlocks(listChanges);
+		event.forwarded = forwarded;
+		event.commit();
+	}
+
+	/**
+	 * Replaces the elements of this list with the given ones, in one ListEvent.
+	 * <p>
+	 * If the delegate can't {@link CanUpdateAllElements update all} elements
+	 * itself, only the differing ranges are written to it, and their changes are forwarded as a
+	 * single event.
+	 */
 	@Override
 	public boolean updateAll(List<? extends E> input) {
-		if (list instanceof UnderlyingPersistentEventList) {
-			UnderlyingPersistentEventList<E> underlying = (UnderlyingPersistentEventList<E>) list;
-			return underlying.updateAll(input);
-		} else {
-			if (DEBUG) {
-				System.out.println("-----------------------------------------------------");
-				System.err.println(" Update on UnderlyingPersistentEventList: INCORRECT");
-				System.out.println("----------------------------------------------------");
-			}
-			int i = 0;
-			List<E> data = list;
-			boolean changed = false;
-			while (i < input.size()) {
-				E newValue = input.get(i);
-				if (i >= data.size()) {
-					data.add(newValue);
-					changed = true;
-				} else {
-					E oldValue = data.get(i);
-					if (oldValue != newValue) {
-						data.set(i, newValue);
-						changed = true;
+		return update(input, null, null);
+	}
+
+	/**
+	 * Like {@link #updateAll(List)}, but matches the elements by key rather
+	 * than by identity. An element whose key is kept is only replaced if it
+	 * isn't equal to the new one. Delegates that match elements by value or
+	 * identifier themselves, such as a {@link PrimitiveEventList}, do so
+	 * instead.
+	 *
+	 * @see UnderlyingPersistentEventList#updateAllByKey(List, Function,
+	 *      BiPredicate)
+	 */
+	boolean updateAllByKey(List<? extends E> input, Function<? super E, ?> key) {
+		return update(input, key, null);
+	}
+
+	/**
+	 * Like {@link #updateAll(List)}, but matches the elements by position, as
+	 * the rows of the collection are. The element at each position the old
+	 * and the new elements share is only replaced if <code>changed</code> says
+	 * so. Delegates that match elements by value or identifier themselves do
+	 * so instead.
+	 *
+	 * @see UnderlyingPersistentEventList#updateAllByPosition(List, BiPredicate)
+	 */
+	boolean updateAllByPosition(List<? extends E> input, BiPredicate<? super E, ? super E> changed) {
+		return update(input, null, changed);
+	}
+
+	/**
+	 * @param key             what identifies an element, or null to match by
+	 *                        identity or by position
+	 * @param positionChanged whether an element matched by position is
+	 *                        replaced, or null unless matching by position
+	 */
+	private boolean update(List<? extends E> input, Function<? super E, ?> key,
+			BiPredicate<? super E, ? super E> positionChanged) {
+		final CollectionEvents.UpdateAll event = new CollectionEvents.UpdateAll();
+		event.begin();
+		beginTransactionEvent();
+		// the delegate is changed directly, so load it, and mark this dirty
+		// below like PersistentList's own mutators do; otherwise the flush
+		// skips it
+		read();
+		final long start = (observer == null) ? 0 : System.nanoTime();
+		final int oldSize = list.size();
+		if (event.isEnabled() || statistics != null) {
+			// the resulting ListEvent is counted by recordChanges
+			pendingChanges = 0;
+		}
+		final boolean delegate = list instanceof CanUpdateAllElements;
+		final boolean changed;
+		final int changes;
+		try {
+			if (positionChanged != null && list instanceof UnderlyingPersistentEventList) {
+				changed = ((UnderlyingPersistentEventList<E>) list).updateAllByPosition(input, positionChanged);
+			} else if (key != null && list instanceof UnderlyingPersistentEventList) {
+				changed = ((UnderlyingPersistentEventList<E>) list).updateAllByKey(input, key, getChangeDetector());
+			} else if (list instanceof UnderlyingPersistentEventList) {
+				changed = ((UnderlyingPersistentEventList<E>) list).updateAll(input, equivalence);
+			} else if (delegate) {
+				@SuppressWarnings("unchecked")
+				final CanUpdateAllElements<E> updatable = (CanUpdateAllElements<E>) list;
+				changed = updatable.updateAll(input);
+			} else {
+				if (LOG.isLoggable(Level.FINE)) {
+					LOG.fine("updateAll on " + list.getClass().getName() + " applies the differences one by one");
+				}
+				updates.beginEvent(true);
+				try {
+					if (positionChanged != null) {
+						changed = applyDifferencesByKeys(input, ListDiff.positions(list.size()),
+								ListDiff.positions(input.size()), positionChanged);
+					} else if (key != null) {
+						changed = applyDifferencesByKeys(input, ListDiff.keys(list, key), ListDiff.keys(input, key),
+								getChangeDetector());
+					} else {
+						changed = applyDifferences(input);
 					}
+				} finally {
+					updates.commitEvent();
+				}
+			}
+		} finally {
+			changes = pendingChanges;
+			pendingChanges = -1;
+		}
+		if (changed) {
+			// an unchanged list isn't written, nor is its owner's version
+			dirty();
+		}
+		if (observer != null) {
+			observer.updatedAll(this, oldSize, list.size(), changed, delegate, System.nanoTime() - start);
+		}
+		if (statistics != null) {
+			statistics.updatedAll(changes, list.size());
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.describe(this);
+			event.oldSize = oldSize;
+			event.changes = changes;
+			event.delegate = delegate;
+			event.commit();
+		}
+		return changed;
+	}
+
+	/**
+	 * @return whether an element with an unchanged key is replaced: unless it
+	 *         is equivalent, or equal without an equivalence
+	 */
+	private BiPredicate<? super E, ? super E> getChangeDetector() {
+		return (equivalence == null) ? NOT_EQUAL : equivalence.negate();
+	}
+
+	/**
+	 * Writes the ranges of <code>input</code> that differ from the delegate to
+	 * it, starting with the last, so the earlier ranges keep their indices.
+	 */
+	private boolean applyDifferences(List<? extends E> input) {
+		final List<E> data = list;
+		final ListDiff<E> diff = ListDiff.compute(data, input, equivalence);
+		boolean changed = false;
+		for (int h = diff.getHunkCount() - 1; h >= 0; h--) {
+			final int oldStart = diff.getOldStart(h);
+			final int oldLength = diff.getOldLength(h);
+			final int newStart = diff.getNewStart(h);
+			final int newLength = diff.getNewLength(h);
+
+			final int replaced = Math.min(oldLength, newLength);
+			for (int i = 0; i < replaced; i++) {
+				final E newValue = input.get(newStart + i);
+				if (equivalence == null || !equivalence.test(data.get(oldStart + i), newValue)) {
+					data.set(oldStart + i, newValue);
+					changed = true;
 				}
-				i++;
 			}
-			while (data.size() > i) {
-				data.remove(i);
+			if (oldLength > replaced) {
+				data.subList(oldStart + replaced, oldStart + oldLength).clear();
+				changed = true;
+			} else if (newLength > replaced) {
+				data.addAll(oldStart + replaced, input.subList(newStart + replaced, newStart + newLength));
 				changed = true;
 			}
-			return changed;
 		}
+		return changed;
 	}
 
-	/** {@inheritDoc} */
+	/**
+	 * Like {@link #applyDifferences(List)}, but matches the elements by key;
+	 * the old and the new keys are aligned with the old and the new elements.
+	 * Elements with different keys are removed and inserted, rather than set,
+	 * and elements with the same key are only set if the change detector says
+	 * so.
+	 */
+	private boolean applyDifferencesByKeys(List<? extends E> input, List<Object> oldKeys, List<Object> newKeys,
+			BiPredicate<? super E, ? super E> changeDetector) {
+		final List<E> data = list;
+		final ListDiff<Object> diff = ListDiff.computeByEquals(oldKeys, newKeys);
+		boolean changed = diff.getHunkCount() > 0;
+
+		// walk from the end, so the earlier ranges keep their indices
+		int oldEnd = data.size();
+		for (int h = diff.getHunkCount(); h >= 0; h--) {
+			final int oldStart = (h > 0) ? diff.getOldStart(h - 1) + diff.getOldLength(h - 1) : 0;
+			final int newStart = (h > 0) ? diff.getNewStart(h - 1) + diff.getNewLength(h - 1) : 0;
+
+			// elements with the same keys after the hunk
+			for (int i = oldEnd - 1; i >= oldStart; i--) {
+				final E newValue = input.get(newStart + i - oldStart);
+				if (changeDetector.test(data.get(i), newValue)) {
+					data.set(i, newValue);
+					changed = true;
+				}
+			}
+			if (h == 0) {
+				break;
+			}
+
+			final int hunkOldStart = diff.getOldStart(h - 1);
+			final int hunkNewStart = diff.getNewStart(h - 1);
+			if (oldStart > hunkOldStart) {
+				data.subList(hunkOldStart, oldStart).clear();
+			}
+			if (newStart > hunkNewStart) {
+				data.addAll(hunkOldStart, input.subList(hunkNewStart, newStart));
+			}
+			oldEnd = hunkOldStart;
+		}
+		return changed;
+	}
+
+	/**
+	 * Removes all listeners, and stops listening to the delegate, so that
+	 * neither keeps the other reachable. Changes are no longer recorded, so a
+	 * disposed collection that is changed and then reattached to a session is
+	 * flushed by comparing every element against the snapshot. If configured,
+	 * the elements of an {@link UnderlyingPersistentEventList} delegate are
+	 * released as well; the collection must then not be merged or reattached
+	 * to a session.
+	 *
+	 * @see PersistentEventListType#useDisposeOnClose(boolean)
+	 */
 	@Override
 	public void dispose() {
-		// TODO Holger please implement me!
+		if (disposed) {
+			return;
+		}
+		final CollectionEvents.Dispose event = new CollectionEvents.Dispose();
+		event.begin();
+		disposed = true;
+
+		for (ListEventListener<E> listener : updates.getListEventListeners()) {
+			updates.removeListEventListener(listener);
+		}
+		if (recorder == null) {
+			((EventList<E>) list).removeListEventListener(this);
+		}
+		recorder = null;
+		forgetRecordedChanges();
+		if (listenerCount != null) {
+			listenerCount.set(0);
+		}
+		if (releaseOnDispose && ownsStorage()) {
+			((EventList<E>) list).dispose();
+		}
+
+		event.end();
+		if (event.shouldCommit()) {
+			event.describe(this);
+			event.commit();
+		}
+	}
+
+	/**
+	 * Marks every element as changed once this list is disposed, since its
+	 * changes are no longer recorded, and spreads out the order keys again if
+	 * they no longer match the elements.
+	 */
+	private void forgetRecordedChanges() {
+		if (!disposed) {
+			return;
+		}
+		journal.moved(0);
+		if (orderKeys != null && orderKeys.size() != list.size()) {
+			orderKeys.spread(list.size());
+		}
+	}
+
+	/**
+	 * Takes a new snapshot, which is the baseline of the change journal. The
+	 * snapshot of an {@link EntityReferenceEventList} holds identifiers too.
+	 */
+	@Override
+	public Serializable getSnapshot(CollectionPersister persister) throws HibernateException {
+		forgetRecordedChanges();
+		journal.reset();
+		if (orderKeys != null) {
+			orderKeys.takeSnapshot();
+		}
+		createElementIndex(persister);
+		if (list instanceof EntityReferenceEventList) {
+			return ((EntityReferenceEventList<E>) list).snapshot();
+		}
+		return super.getSnapshot(persister);
+	}
+
+	/**
+	 * Compares against the snapshot only if the journal recorded a change, or
+	 * if elements could have been changed in place.
+	 */
+	@Override
+	public boolean equalsSnapshot(CollectionPersister persister) throws HibernateException {
+		forgetRecordedChanges();
+		if (journal.isClean() && !persister.getElementType().isMutable()) {
+			return true;
+		}
+		if (orderKeys != null && !orderKeys.equalsSnapshot()) {
+			return false;
+		}
+		return super.equalsSnapshot(persister);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Iterator<?> getDeletes(CollectionPersister persister, boolean indexIsFormula) throws HibernateException {
+		forgetRecordedChanges();
+		if (journal.isClean()) {
+			return Collections.emptyIterator();
+		}
+		if (orderKeys == null) {
+			return super.getDeletes(persister, indexIsFormula);
+		}
+
+		// delete the rows whose key is gone or now holds null
+		final List<?> snapshot = (List<?>) getSnapshot();
+		final List<Object> deletes = new ArrayList<>();
+		for (int j = 0; j < snapshot.size(); j++) {
+			final Object snapshotElement = snapshot.get(j);
+			if (snapshotElement == null) {
+				continue;
+			}
+			final int key = orderKeys.getSnapshotKey(j);
+			final int i = orderKeys.indexOf(key);
+			if (i < 0 || list.get(i) == null) {
+				deletes.add(indexIsFormula ? snapshotElement : Integer.valueOf(key));
+			}
+		}
+		return deletes.iterator();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean needsInserting(Object entry, int i, Type elemType) throws HibernateException {
+		if (!journal.isDirty(i)) {
+			return false;
+		}
+		if (orderKeys == null) {
+			return super.needsInserting(entry, i, elemType);
+		}
+		if (list.get(i) == null) {
+			return false;
+		}
+		final int j = orderKeys.snapshotIndexOf(orderKeys.get(i));
+		return j < 0 || ((List<?>) getSnapshot()).get(j) == null;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean needsUpdating(Object entry, int i, Type elemType) throws HibernateException {
+		if (!elemType.isMutable() && !journal.isDirty(i)) {
+			return false;
+		}
+		if (orderKeys == null) {
+			return super.needsUpdating(entry, i, elemType);
+		}
+		final int j = orderKeys.snapshotIndexOf(orderKeys.get(i));
+		if (j < 0) {
+			return false;
+		}
+		final Object snapshotElement = ((List<?>) getSnapshot()).get(j);
+		final E element = list.get(i);
+		return snapshotElement != null && element != null && elemType.isDirty(element, snapshotElement, getSession());
+	}
+
+	/**
+	 * Lines up the order keys with the elements of a disposed list before its
+	 * rows are inserted.
+	 */
+	@Override
+	public void preInsert(CollectionPersister persister) throws HibernateException {
+		super.preInsert(persister);
+		forgetRecordedChanges();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Object getIndex(Object entry, int i, CollectionPersister persister) {
+		if (orderKeys == null) {
+			return super.getIndex(entry, i, persister);
+		}
+		return Integer.valueOf(orderKeys.get(i));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Object getSnapshotElement(Object entry, int i) {
+		if (orderKeys == null) {
+			return super.getSnapshotElement(entry, i);
+		}
+		final int j = orderKeys.snapshotIndexOf(orderKeys.get(i));
+		return j < 0 ? null : ((List<?>) getSnapshot()).get(j);
+	}
+
+	/**
+	 * Extra lazy reads look up the list-index column by position, which only
+	 * works for dense keys. With pages, the element is read with the rest of
+	 * its page.
+	 */
+	@Override
+	protected Object readElementByIndex(Object index) {
+		if (orderKeys != null) {
+			read();
+			return UNKNOWN;
+		}
+		final CollectionPersister persister = getPagedPersister();
+		if (persister == null) {
+			return super.readElementByIndex(index);
+		}
+		final int i = ((Integer) index).intValue();
+		final int size = size();
+		if (i >= size) {
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+		}
+		return pages.get(i, size, (first, count) -> loadPage(persister, first, count));
+	}
+
+	/**
+	 * Releases the pages once the queued operations are written, since they
+	 * may have changed the rows.
+	 */
+	@Override
+	public void postAction() {
+		super.postAction();
+		if (pages != null) {
+			pages.clear();
+		}
+	}
+
+	/**
+	 * @return the persister of this list, if its elements are read by page;
+	 *         otherwise null. Pages are read while this list is an
+	 *         uninitialized extra lazy collection of an open session, without
+	 *         queued operations.
+	 */
+	private CollectionPersister getPagedPersister() {
+		if (pages == null || orderKeys != null || wasInitialized() || hasQueuedOperations()) {
+			return null;
+		}
+		final SharedSessionContractImplementor session = getSession();
+		if (session == null || !session.isOpenOrWaitingForAutoClose() || !session.isConnected()) {
+			return null;
+		}
+		final CollectionEntry entry = session.getPersistenceContextInternal().getCollectionEntry(this);
+		final CollectionPersister persister = (entry == null) ? null : entry.getLoadedPersister();
+		return (persister != null && persister.isExtraLazy()) ? persister : null;
+	}
+
+	/**
+	 * Queries the elements at the positions <code>first</code> to
+	 * <code>first + count - 1</code>. A position without a row holds null.
+	 * The query doesn't flush the session, which a read mustn't do, and which
+	 * could change this list while it is read.
+	 */
+	private Object[] loadPage(CollectionPersister persister, int first, int count) {
+		final String ownerEntityName = persister.getOwnerEntityPersister().getEntityName();
+		final String path = persister.getRole().substring(ownerEntityName.length() + 1);
+		final int base = persister.getAttributeMapping().getIndexMetadata().getListIndexBase();
+		if (LOG.isLoggable(Level.FINE)) {
+			LOG.fine("Reading " + count + " elements of " + persister.getRole() + " from " + first);
+		}
+
+		final List<Object[]> rows = getSession()
+				.createQuery("select index(e), e from " + ownerEntityName + " o join o." + path
+						+ " e where o = :owner and index(e) between :first and :last", Object[].class)
+				.setHibernateFlushMode(FlushMode.MANUAL)
+				.setParameter("owner", getOwner())
+				.setParameter("first", Integer.valueOf(base + first))
+				.setParameter("last", Integer.valueOf(base + first + count - 1))
+				.list();
+		final Object[] page = new Object[count];
+		for (Object[] row : rows) {
+			final int offset = ((Number) row[0]).intValue() - base - first;
+			if (offset >= 0 && offset < count) {
+				page[offset] = row[1];
+			}
+		}
+		return page;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean add(E element) {
+		beginTransactionEvent();
+		return super.add(element);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void add(int index, E element) {
+		beginTransactionEvent();
+		super.add(index, element);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean addAll(Collection<? extends E> values) {
+		beginTransactionEvent();
+		return super.addAll(values);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean addAll(int index, Collection<? extends E> values) {
+		beginTransactionEvent();
+		return super.addAll(index, values);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public E set(int index, E element) {
+		beginTransactionEvent();
+		return super.set(index, element);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public E remove(int index) {
+		beginTransactionEvent();
+		return super.remove(index);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean remove(Object value) {
+		beginTransactionEvent();
+		return super.remove(value);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean removeAll(Collection<?> values) {
+		beginTransactionEvent();
+		return super.removeAll(values);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean retainAll(Collection<?> values) {
+		beginTransactionEvent();
+		return super.retainAll(values);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void clear() {
+		beginTransactionEvent();
+		super.clear();
+	}
+
+	/**
+	 * Iterates by position while the elements are read by page, rather than
+	 * initializing this list.
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		if (getPagedPersister() != null) {
+			return new PagedView().iterator();
+		}
+		return super.iterator();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public ListIterator<E> listIterator() {
+		return listIterator(0);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public ListIterator<E> listIterator(int index) {
+		if (getPagedPersister() != null) {
+			return new PagedView().listIterator(index);
+		}
+		return super.listIterator(index);
+	}
+
+	/**
+	 * Appends the order keys to the cached elements.
+	 */
+	@Override
+	public Object disassemble(CollectionPersister persister) throws HibernateException {
+		final Serializable[] elements = (Serializable[]) super.disassemble(persister);
+		if (orderKeys == null) {
+			return elements;
+		}
+		final Serializable[] result = Arrays.copyOf(elements, elements.length + 1);
+		result[elements.length] = orderKeys.toArray();
+		return result;
+	}
+
+	/**
+	 * Fills the delegate with the cached elements. Unlike Hibernate's
+	 * implementation, this keeps the delegate this list is connected to,
+	 * rather than instantiating a new one whose changes would not be recorded
+	 * or published.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void initializeFromCache(CollectionPersister persister, Object disassembled, Object owner)
+			throws HibernateException {
+		final Serializable[] array = (Serializable[]) disassembled;
+		final int size = (orderKeys == null) ? array.length : array.length - 1;
+		final Type elementType = persister.getElementType();
+		final List<E> loaded = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			loaded.add((E) elementType.assemble(array[i], getSession(), owner));
+		}
+		if (orderKeys != null) {
+			orderKeys.restore((int[]) array[size]);
+		}
+		hydrate(loaded);
+		createElementIndex(persister);
+		if (pages != null) {
+			pages.clear();
+		}
+	}
+
+	/**
+	 * Fills the delegate with loaded elements without publishing a ListEvent,
+	 * since no listener may observe the initialization.
+	 */
+	@SuppressWarnings("unchecked")
+	private void hydrate(List<E> loaded) {
+		if (list instanceof CanHydrateElements) {
+			((CanHydrateElements<E>) list).hydrate(loaded);
+		} else {
+			list.addAll(loaded);
+		}
 	}
 
 	/**
@@ -175,12 +1172,21 @@ public final class PersistentEventList<E> extends PersistentList<E>
 	}
 
 	/**
-	 * Deserializes this list and all serializable listeners.
+	 * Deserializes this list and all serializable listeners, and connects it
+	 * to the delegate again, unless it was disposed. A {@link BasicEventList}
+	 * delegate has registered this list already, as one of its own
+	 * serializable listeners.
 	 */
 	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
 		in.defaultReadObject();
+		pendingChanges = -1;
 		assert (list instanceof EventList) : "'list' member type unknown";
-		updates = new ListEventAssembler<E>(this, ((EventList<E>) list).getPublisher());
+		final EventList<E> delegate = (EventList<E>) list;
+		if (disposed || delegate instanceof BasicEventList) {
+			updates = new ListEventAssembler<E>(this, delegate.getPublisher());
+		} else {
+			connect(delegate);
+		}
 
 		// read in the listeners
 		@SuppressWarnings("unchecked")
@@ -195,6 +1201,8 @@ public final class PersistentEventList<E> extends PersistentList<E>
 	public void injectLoadedState(PluralAttributeMapping attributeMapping, List<?> loadingStateList) {
 		assert isInitializing();
 		assert list == null || list.size() == 0;
+		final CollectionEvents.Initialization event = new CollectionEvents.Initialization();
+		event.begin();
 
 		final CollectionPersister collectionDescriptor = attributeMapping.getCollectionDescriptor();
 		if (list == null) {
@@ -202,7 +1210,45 @@ public final class PersistentEventList<E> extends PersistentList<E>
 					collectionDescriptor);
 		}
 
-		list.addAll((List<E>) loadingStateList);
+		List<E> loaded = (List<E>) loadingStateList;
+		if (orderKeys != null) {
+			loaded = orderKeys.load(loaded);
+		}
+
+		hydrate(loaded);
+		createElementIndex(collectionDescriptor);
+		if (pages != null) {
+			pages.clear();
+		}
+
+		event.end();
+		if (event.shouldCommit()) {
+			// the role and key aren't set until the initialization is done
+			event.role = collectionDescriptor.getRole();
+			event.owner = CollectionEvents.describeOwner(getOwner(), getKey());
+			event.size = list.size();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Replays the operations Hibernate queued while this list was
+	 * uninitialized as one ListEvent. Appends to and removals from an inverse
+	 * collection are queued, rather than loading it, and written by the
+	 * elements' own rows. The loaded elements don't publish a ListEvent, so
+	 * listeners only see the queued changes.
+	 */
+	@Override
+	public boolean afterInitialize() {
+		if (!hasQueuedOperations()) {
+			return super.afterInitialize();
+		}
+		updates.beginEvent(true);
+		try {
+			return super.afterInitialize();
+		} finally {
+			updates.commitEvent();
+		}
 	}
 
 	@Override
@@ -213,7 +1259,89 @@ public final class PersistentEventList<E> extends PersistentList<E>
 		if (list == null) {
 			list = (List<E>) persister.getCollectionType().instantiate(0);
 		}
+		if (orderKeys != null) {
+			orderKeys.spread(0);
+		}
+		createElementIndex(persister);
+		if (pages != null) {
+			pages.clear();
+		}
 		endRead();
 	}
 
-}
\ No newline at end of file
+
+	/**
+	 * This list by position, whose elements are read by page. Changes go
+	 * through this list, which initializes it.
+	 */
+	private final class PagedView extends AbstractList<E> implements RandomAccess {
+		/** {@inheritDoc} */
+		@Override
+		public E get(int index) {
+			return PersistentEventList.this.get(index);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int size() {
+			return PersistentEventList.this.size();
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public E set(int index, E element) {
+			return PersistentEventList.this.set(index, element);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void add(int index, E element) {
+			PersistentEventList.this.add(index, element);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public E remove(int index) {
+			return PersistentEventList.this.remove(index);
+		}
+	}
+
+	/**
+	 * Keeps the journal and order keys up to date when the delegate publishes
+	 * its changes as changes of this list.
+	 */
+	private final class ChangeRecorder implements ListEventListener<E> {
+		/** {@inheritDoc} */
+		@Override
+		public void listChanged(ListEvent<E> listChanges) {
+			if (wasInitialized()) {
+				recordChanges(listChanges);
+
+				// the listeners are notified after this one, so this event has no duration
+				final CollectionEvents.ListChanged event = new CollectionEvents.ListChanged();
+				if (event.shouldCommit()) {
+					commitListChanged(event, listChanges, updates.getListEventListeners().size() - 1, false);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Publishes the changes of a list when the transaction they were made in
+	 * completes.
+	 */
+	private final class TransactionEventPublisher implements Synchronization {
+
+		/** {@inheritDoc} */
+		@Override
+		public void beforeCompletion() {
+			// the elements are flushed by then, and don't change anymore
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void afterCompletion(int status) {
+			commitTransactionEvent(status == Status.STATUS_COMMITTED);
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.List;
+
+/**
+ * Receives notifications about the work done by {@link PersistentEventList}s,
+ * for logging, profiling or monitoring. An observer is configured per
+ * collection type with {@link PersistentEventListType#useObserver}; without
+ * one, the lists don't measure anything.
+ * <p>
+ * Observers are called synchronously, while the list's write lock is held, so
+ * they should return quickly.
+ *
+ * @author Nathan Hapke
+ */
+public interface PersistentEventListObserver {
+
+	/**
+	 * Called after {@link PersistentEventList#updateAll(List)} has replaced the
+	 * elements of a list.
+	 *
+	 * @param list     the updated list
+	 * @param oldSize  the size of the list before the update
+	 * @param newSize  the size of the list after the update
+	 * @param changed  whether any element was changed
+	 * @param delegate whether the list's own EventList implementation did the
+	 *                 update, rather than the generic fallback
+	 * @param nanos    how long the update took, in nanoseconds
+	 */
+	default void updatedAll(PersistentEventList<?> list, int oldSize, int newSize, boolean changed,
+			boolean delegate, long nanos) {
+	}
+}
@@ -3,43 +3,54 @@
 /*                                                     O'Dell Engineering Ltd.*/
 package ca.odell.glazedlists.hibernate6;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.hibernate.HibernateException;
 import org.hibernate.collection.spi.PersistentCollection;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.metamodel.CollectionClassification;
 import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.type.Type;
+import org.hibernate.usertype.ParameterizedType;
 import org.hibernate.usertype.UserCollectionType;
 
-import ca.odell.glazedlists.BasicEventList;
 import ca.odell.glazedlists.EventList;
 import ca.odell.glazedlists.event.ListEventPublisher;
-import ca.odell.glazedlists.hibernate.EventListFactory;
 import ca.odell.glazedlists.util.concurrent.ReadWriteLock;
 
 /**
- * A Hibernate custom collection type for mapping and persisting a
- * {@link BasicEventList} with the help of a {@link PersistentEventList}.
+ * A Hibernate custom collection type for mapping and persisting an
+ * {@link EventList} with the help of a {@link PersistentEventList}.
  * <p>
- * To create the EventLists, an {@link EventListFactory} is used. The default
- * factory simply instantiates new {@link BasicEventList}s with unshared
- * {@link ReadWriteLock}s and {@link ListEventPublisher}s. If that doesn't suit
- * your needs, you can either implement and set your own
- * {@link EventListFactory} implementation. Or you can use a so called <em>list
- * category</em>. By setting a list category on the EventListType instance, a
- * different list factory will be used which uses the category to determine the
- * publisher and lock to use for all EventLists it creates. This way, all
- * EventListType instances which use the same list category will produce
- * EventLists with the same shared lock and publisher. The desired list category
- * can be set programmatically by subclassing. When Hibernate bug <a href=
- * "http://opensource.atlassian.com/projects/hibernate/browse/HHH-2336">HHH-2336</a>
- * is fixed, you will be able to specify the category as collection type
- * parameter in your Hibernate mapping file.
+ * To create the EventLists, a {@link PersistentEventListFactory} is used. The
+ * default factory simply instantiates new {@link UnderlyingPersistentEventList}s
+ * with unshared {@link ReadWriteLock}s and {@link ListEventPublisher}s. If that
+ * doesn't suit your needs, you can either implement and set your own
+ * {@link PersistentEventListFactory} implementation. Or you can use a so called
+ * <em>list category</em>. By setting a list category on the
+ * PersistentEventListType instance, a {@link CategoryEventListFactory} will be
+ * used which uses the category to determine the publisher and lock to use for
+ * all EventLists it creates. This way, all PersistentEventListType instances
+ * which use the same list category will produce EventLists with the same shared
+ * lock and publisher. The desired list category can be set programmatically by
+ * subclassing, or as collection type parameter in your Hibernate mapping file:
  *
- * @see #setListFactory(EventListFactory)
+ * <pre>
+ * &lt;typedef name="userLists" class="ca.odell.glazedlists.hibernate6.PersistentEventListType"&gt;
+ *     &lt;param name="EventList.category"&gt;Users&lt;/param&gt;
+ * &lt;/typedef&gt;
+ * &lt;list name="roles" collection-type="userLists"&gt;...&lt;/list&gt;
+ * </pre>
+ *
+ * @see #setListFactory(PersistentEventListFactory)
  * @see #useListCategory(String)
  * @see #PROPERTYNAME_EVENTLIST_CATEGORY
  *
@@ -47,22 +58,530 @@ import ca.odell.glazedlists.util.concurrent.ReadWriteLock;
  * @author Holger Brands
  * @author Nathan Hapke
  */
-public class PersistentEventListType<E> implements UserCollectionType {
+public class PersistentEventListType<E> implements UserCollectionType, ParameterizedType {
+
+	private static final Logger LOG = Logger.getLogger(PersistentEventListType.class.getName());
+
+	/** Name of the mapping parameter for the list category. */
+	public static final String PROPERTYNAME_EVENTLIST_CATEGORY = "EventList.category";
+
+	/**
+	 * Name of the mapping parameter for the gap between list-index values.
+	 *
+	 * @see #useOrderKeyGap(int)
+	 */
+	public static final String PROPERTYNAME_EVENTLIST_ORDER_KEY_GAP = "EventList.orderKeyGap";
+
+	/**
+	 * Name of the mapping parameter that turns on the element index.
+	 *
+	 * @see #useElementIndex(boolean)
+	 */
+	public static final String PROPERTYNAME_EVENTLIST_ELEMENT_INDEX = "EventList.elementIndex";
+
+	/**
+	 * Name of the mapping parameter that disposes the collections when their
+	 * session is closed.
+	 *
+	 * @see #useDisposeOnClose(boolean)
+	 */
+	public static final String PROPERTYNAME_EVENTLIST_DISPOSE_ON_CLOSE = "EventList.disposeOnClose";
+
+	/**
+	 * Name of the mapping parameter that releases the elements of disposed
+	 * collections.
+	 *
+	 * @see #useReleaseOnDispose(boolean)
+	 */
+	public static final String PROPERTYNAME_EVENTLIST_RELEASE_ON_DISPOSE = "EventList.releaseOnDispose";
+
+	/**
+	 * Name of the mapping parameter for the number of resolved entities each
+	 * collection caches, which makes the collections store only identifiers.
+	 *
+	 * @see #useEntityReferences(int)
+	 */
+	public static final String PROPERTYNAME_EVENTLIST_ENTITY_REFERENCES = "EventList.entityReferences";
+
+	/**
+	 * Name of the mapping parameter for the number of elements an extra lazy
+	 * collection reads at a time.
+	 *
+	 * @see #useExtraLazyPages(int, int)
+	 */
+	public static final String PROPERTYNAME_EVENTLIST_PAGE_SIZE = "EventList.pageSize";
+
+	/**
+	 * Name of the mapping parameter for the number of pages an extra lazy
+	 * collection keeps.
+	 *
+	 * @see #useExtraLazyPages(int, int)
+	 */
+	public static final String PROPERTYNAME_EVENTLIST_CACHED_PAGES = "EventList.cachedPages";
+
+	/**
+	 * Name of the mapping parameter for the class of the merge key, a
+	 * {@link Function} with a public no-argument constructor.
+	 *
+	 * @see #useMergeKey(Function)
+	 */
+	public static final String PROPERTYNAME_EVENTLIST_MERGE_KEY = "EventList.mergeKey";
+
+	/**
+	 * Name of the mapping parameter for the equivalence of elements:
+	 * <code>identity</code>, <code>equals</code>, <code>entityId</code> or the
+	 * class name of a {@link BiPredicate} with a public no-argument
+	 * constructor.
+	 *
+	 * @see #useEquivalence(BiPredicate)
+	 * @see #useEntityIdEquivalence()
+	 */
+	public static final String PROPERTYNAME_EVENTLIST_EQUIVALENCE = "EventList.equivalence";
+
+	/**
+	 * Name of the mapping parameter that publishes the changes made during a
+	 * transaction as one ListEvent when it completes.
+	 *
+	 * @see #useTransactionEvents(boolean)
+	 */
+	public static final String PROPERTYNAME_EVENTLIST_TRANSACTION_EVENTS = "EventList.transactionEvents";
+
+	/** the number of pages kept if the mapping doesn't say */
+	private static final int DEFAULT_CACHED_PAGES = 16;
 
 	private PersistentEventListFactory<E> underlyingListFactory = PersistentEventListFactory.DEFAULT;
 
+	/** gap between persisted list-index values, or 0 to persist positions */
+	private int orderKeyGap = 0;
+
+	/** whether collections index their elements for contains and indexOf */
+	private boolean elementIndex = false;
+
+	/** whether collections are disposed when their session is closed */
+	private boolean disposeOnClose = false;
+
+	/** whether disposing a collection releases its elements */
+	private boolean releaseOnDispose = false;
+
+	/** entities cached per collection that stores identifiers, or 0 */
+	private int entityReferenceCacheSize = 0;
+
+	/** elements read at a time by uninitialized extra lazy collections, or 0 */
+	private int pageSize = 0;
+
+	private int cachedPages = DEFAULT_CACHED_PAGES;
+
+	/** what matches the elements of a merged collection, or null for the default */
+	private Function<? super E, ?> mergeKey;
+
+	/** which elements updateAll keeps, or null for identical ones only */
+	private BiPredicate<? super E, ? super E> equivalence;
+
+	/** whether elements are the same if they are entities with the same identifier */
+	private boolean entityIdEquivalence = false;
+
+	/** whether the changes of a transaction are published when it completes */
+	private boolean transactionEvents = false;
+
+	/** notified about the work done by the collections, or null */
+	private PersistentEventListObserver observer;
+
+	/**
+	 * @return the factory used to create the underlying EventLists
+	 */
+	public final PersistentEventListFactory<E> getListFactory() {
+		return underlyingListFactory;
+	}
+
+	/**
+	 * Sets the factory used to create the underlying EventLists.
+	 */
+	public final void setListFactory(PersistentEventListFactory<E> listFactory) {
+		if (listFactory == null) {
+			throw new IllegalArgumentException("PersistentEventListFactory must not be null");
+		}
+		this.underlyingListFactory = listFactory;
+	}
+
+	/**
+	 * Reads the list category, order key gap, element index, dispose, entity
+	 * reference, page, merge key, equivalence and transaction event options
+	 * from the collection type parameters of the mapping.
+	 */
+	@Override
+	public final void setParameterValues(Properties parameters) {
+		if (parameters == null) {
+			return;
+		}
+		final String category = parameters.getProperty(PROPERTYNAME_EVENTLIST_CATEGORY);
+		if (category != null) {
+			useListCategory(category);
+		}
+		final String gap = parameters.getProperty(PROPERTYNAME_EVENTLIST_ORDER_KEY_GAP);
+		if (gap != null) {
+			useOrderKeyGap(Integer.parseInt(gap.trim()));
+		}
+		final String index = parameters.getProperty(PROPERTYNAME_EVENTLIST_ELEMENT_INDEX);
+		if (index != null) {
+			useElementIndex(Boolean.parseBoolean(index.trim()));
+		}
+		final String disposeOnClose = parameters.getProperty(PROPERTYNAME_EVENTLIST_DISPOSE_ON_CLOSE);
+		if (disposeOnClose != null) {
+			useDisposeOnClose(Boolean.parseBoolean(disposeOnClose.trim()));
+		}
+		final String release = parameters.getProperty(PROPERTYNAME_EVENTLIST_RELEASE_ON_DISPOSE);
+		if (release != null) {
+			useReleaseOnDispose(Boolean.parseBoolean(release.trim()));
+		}
+		final String entityReferences = parameters.getProperty(PROPERTYNAME_EVENTLIST_ENTITY_REFERENCES);
+		if (entityReferences != null) {
+			useEntityReferences(Integer.parseInt(entityReferences.trim()));
+		}
+		final String pageSize = parameters.getProperty(PROPERTYNAME_EVENTLIST_PAGE_SIZE);
+		if (pageSize != null) {
+			final String pages = parameters.getProperty(PROPERTYNAME_EVENTLIST_CACHED_PAGES);
+			useExtraLazyPages(Integer.parseInt(pageSize.trim()),
+					(pages == null) ? DEFAULT_CACHED_PAGES : Integer.parseInt(pages.trim()));
+		}
+		final String mergeKey = parameters.getProperty(PROPERTYNAME_EVENTLIST_MERGE_KEY);
+		if (mergeKey != null) {
+			useMergeKey(instantiateMergeKey(mergeKey.trim()));
+		}
+		final String equivalence = parameters.getProperty(PROPERTYNAME_EVENTLIST_EQUIVALENCE);
+		if (equivalence != null) {
+			final String name = equivalence.trim();
+			if (Equivalences.ENTITY_ID_NAME.equals(name)) {
+				useEntityIdEquivalence();
+			} else {
+				useEquivalence(Equivalences.<E>forName(name));
+			}
+		}
+		final String transactionEvents = parameters.getProperty(PROPERTYNAME_EVENTLIST_TRANSACTION_EVENTS);
+		if (transactionEvents != null) {
+			useTransactionEvents(Boolean.parseBoolean(transactionEvents.trim()));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Function<? super E, ?> instantiateMergeKey(String className) {
+		try {
+			return (Function<? super E, ?>) Class.forName(className).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			throw new HibernateException("Cannot instantiate merge key " + className, e);
+		}
+	}
+
+	/**
+	 * Uses a {@link CategoryEventListFactory} for the given category, so that
+	 * all EventLists of the category share one lock and publisher. A
+	 * {@link PrimitiveEventListFactory} is kept, with the category's lock and
+	 * publisher.
+	 */
+	protected final void useListCategory(String category) {
+		applyListCategory(new CategoryEventListFactory<E>(category));
+	}
+
+	/**
+	 * Uses a {@link CategoryEventListFactory} for the given category, with the
+	 * given lock and publisher.
+	 *
+	 * @throws IllegalStateException if the category is already registered with
+	 *                               a different lock or publisher
+	 */
+	protected final void useListCategory(String category, ReadWriteLock lock, ListEventPublisher publisher) {
+		applyListCategory(new CategoryEventListFactory<E>(category, lock, publisher));
+	}
+
+	private void applyListCategory(CategoryEventListFactory<E> categoryFactory) {
+		if (underlyingListFactory instanceof PrimitiveEventListFactory) {
+			final Class<E> elementType = ((PrimitiveEventListFactory<E>) underlyingListFactory).getElementType();
+			setListFactory(new PrimitiveEventListFactory<E>(elementType, categoryFactory.getReadWriteLock(),
+					categoryFactory.getPublisher()));
+		} else {
+			setListFactory(categoryFactory);
+		}
+	}
+
+	/**
+	 * Persists sparse values in the list-index column, initially
+	 * <code>gap</code> apart, instead of each element's position. Inserting or
+	 * removing an element then writes only its own row, rather than renumbering
+	 * every row after it. Listeners still see dense indices.
+	 * <p>
+	 * Hibernate loads a list by placing each element at the position of its
+	 * index value, so a larger gap makes loading allocate a larger temporary
+	 * list. Extra lazy access by index loads the whole collection in this mode.
+	 *
+	 * @param gap the initial distance between index values, at least 2; or 0
+	 *            to persist positions
+	 */
+	protected final void useOrderKeyGap(int gap) {
+		if (gap != 0 && gap < 2) {
+			throw new IllegalArgumentException("Gap must be 0 or at least 2: " + gap);
+		}
+		this.orderKeyGap = gap;
+	}
+
+	/**
+	 * Lets the collections maintain an index of their elements, so that
+	 * {@link #contains(Object, Object)} and {@link #indexOf(Object, Object)}
+	 * don't scan the list. Hibernate calls these for every element during
+	 * cascades and orphan removal.
+	 * <p>
+	 * Entity elements are looked up by identity, which Hibernate guarantees to
+	 * be unique per identifier within a session. Value elements are looked up
+	 * with <code>equals</code>.
+	 *
+	 * @see UnderlyingPersistentEventList#useElementIndex(boolean)
+	 */
+	protected final void useElementIndex(boolean enabled) {
+		this.elementIndex = enabled;
+	}
+
+	/**
+	 * Disposes every collection when the session that created it is closed.
+	 * This removes all their listeners, so that derived lists and whatever
+	 * listens to them can be garbage collected. Only use this if the entities
+	 * aren't displayed or otherwise listened to after their session closed.
+	 *
+	 * @see PersistentEventList#dispose()
+	 */
+	protected final void useDisposeOnClose(boolean enabled) {
+		this.disposeOnClose = enabled;
+	}
+
+	/**
+	 * Lets disposing a collection also release its elements, which empties it.
+	 * A released collection must not be merged or reattached to a session, as
+	 * flushing it would delete its rows.
+	 */
+	protected final void useReleaseOnDispose(boolean enabled) {
+		this.releaseOnDispose = enabled;
+	}
+
+	/**
+	 * Lets the collections store only the identifiers of their entities, in a
+	 * <code>long[]</code>, and resolve an element when it is read, keeping the
+	 * most recently resolved <code>cacheSize</code> entities. This is for
+	 * large associations of which only a few elements are read at a time, such
+	 * as the visible rows of a table.
+	 * <p>
+	 * An element that isn't loaded yet is resolved to an uninitialized proxy,
+	 * along with the elements following it, so that a <code>batch-size</code>
+	 * on the element entity loads them with one query.
+	 * <p>
+	 * Only the storage of the collection itself shrinks. Hibernate still loads
+	 * and hydrates all entities when it initializes a collection, and the
+	 * session holds on to them; they can only be collected once they are
+	 * evicted from the session, or it is cleared or closed. So this saves
+	 * memory for long sessions that evict what they loaded, but not while a
+	 * session keeps every entity.
+	 * <p>
+	 * When the session is closed, an initialized collection resolves all of
+	 * its elements and holds them, so it can be read, searched, changed and
+	 * merged while detached, like any other collection. The elements that
+	 * weren't read before are uninitialized proxies then, as those of a lazy
+	 * association would be. A collection that is detached by evicting its
+	 * owner or clearing the session, rather than closing it, can't resolve its
+	 * elements anymore, and throws a LazyInitializationException for those
+	 * that aren't cached.
+	 * <p>
+	 * Only collections of entities with a Long, Integer or Short identifier
+	 * are supported.
+	 *
+	 * @param cacheSize the number of resolved entities each collection keeps,
+	 *                  or 0 to store the entities themselves
+	 * @see EntityReferenceEventList
+	 */
+	protected final void useEntityReferences(int cacheSize) {
+		if (cacheSize < 0) {
+			throw new IllegalArgumentException("Cache size must not be negative: " + cacheSize);
+		}
+		this.entityReferenceCacheSize = cacheSize;
+	}
+
+	/**
+	 * Lets uninitialized collections that are mapped with
+	 * <code>lazy="extra"</code> read their elements by page, rather than one
+	 * query per element. Hibernate already reads the size of such a collection
+	 * with a count query; with pages, iterating it doesn't initialize it
+	 * either. So a large collection can be bound to a table, which only reads
+	 * the visible rows.
+	 * <p>
+	 * The pages are read with the owner's session, which must still be open,
+	 * and don't publish ListEvents. Changing the collection initializes it as
+	 * before, so its ListEvents describe the whole list. The pages are released
+	 * then. Collections with {@link #useOrderKeyGap(int) order keys} can't be
+	 * read by position, and are initialized instead.
+	 *
+	 * @param pageSize    the number of elements read at a time, or 0 to read
+	 *                    one at a time
+	 * @param cachedPages the number of pages each collection keeps
+	 */
+	protected final void useExtraLazyPages(int pageSize, int cachedPages) {
+		if (pageSize < 0 || cachedPages < 1) {
+			throw new IllegalArgumentException("Invalid page size or cached pages: " + pageSize + ", " + cachedPages);
+		}
+		this.pageSize = pageSize;
+		this.cachedPages = cachedPages;
+	}
+
+	/**
+	 * Sets what identifies an element when a detached collection is merged,
+	 * for value types whose elements aren't simply equal or not. Elements with
+	 * the same key are matched, and only replaced if they aren't equal.
+	 * <p>
+	 * Without a merge key, entities are matched by identifier, through the
+	 * managed copies Hibernate made of them. Components are matched by
+	 * position, like their rows, and only replaced if one of their properties
+	 * changed, since Hibernate copies each of them into a new instance. Other
+	 * values are matched if they are equal.
+	 *
+	 * @param mergeKey the key of an element, never called for null; or null
+	 *                 for the default
+	 * @see #replaceElements(Object, Object, CollectionPersister, Object, Map,
+	 *      SharedSessionContractImplementor)
+	 */
+	protected final void useMergeKey(Function<? super E, ?> mergeKey) {
+		this.mergeKey = mergeKey;
+	}
+
+	/**
+	 * Sets which elements given to {@link PersistentEventList#updateAll(List)}
+	 * are the same as the ones already in the list, besides identical ones.
+	 * Those are kept, so they cause neither a ListEvent nor a write. Without an
+	 * equivalence, only identical elements are kept, so equal but distinct
+	 * values, such as the Strings of a merged collection, are replaced.
+	 * <p>
+	 * The equivalence also decides whether an element is replaced that was
+	 * matched by its {@link #useMergeKey(Function) merge key}.
+	 *
+	 * @param equivalence whether an old and a new element are the same; or
+	 *                    null for identity
+	 * @see #useEntityIdEquivalence()
+	 */
+	protected final void useEquivalence(BiPredicate<? super E, ? super E> equivalence) {
+		this.equivalence = equivalence;
+		this.entityIdEquivalence = false;
+	}
+
+	/**
+	 * Lets {@link PersistentEventList#updateAll(List)} keep the entities that
+	 * have the same identifier as the new ones, such as a detached copy of a
+	 * managed entity, or a proxy for it. Proxies aren't initialized.
+	 *
+	 * @see #useEquivalence(BiPredicate)
+	 */
+	protected final void useEntityIdEquivalence() {
+		this.equivalence = null;
+		this.entityIdEquivalence = true;
+	}
+
+	/**
+	 * Lets the collections collect the changes made during a transaction of
+	 * their session into one ListEvent, which is published after the
+	 * transaction completes. A transaction that changes 10000 elements then
+	 * notifies the listeners once. Changes made outside of a transaction are
+	 * published right away, as before.
+	 * <p>
+	 * The collection itself shows the changes immediately, and writes them on
+	 * flush as usual. Lists built on it, such as a SortedList or a FilterList,
+	 * don't know about them until then, and map to positions that may have
+	 * changed, so they must not be read before the transaction completes.
+	 * Changes made through an iterator or a sublist are published right away,
+	 * unless the transaction changed the collection before. The changes of a
+	 * transaction that is rolled back are dropped. Hibernate doesn't revert
+	 * the elements of the collection in memory though, so a single ListEvent
+	 * then replaces all of them instead.
+	 *
+	 * @param enabled whether changes are published when the transaction
+	 *                completes
+	 */
+	protected final void useTransactionEvents(boolean enabled) {
+		this.transactionEvents = enabled;
+	}
+
+	/**
+	 * Notifies the given observer about the work done by the collections of
+	 * this type, such as {@link PersistentEventList#updateAll(List)}. Without an
+	 * observer, the collections don't measure anything.
+	 *
+	 * @param observer the observer, or null to remove it
+	 */
+	protected final void useObserver(PersistentEventListObserver observer) {
+		this.observer = observer;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public PersistentCollection<E> instantiate(SharedSessionContractImplementor session, CollectionPersister persister)
 			throws HibernateException {
-		return new PersistentEventList<E>(session, underlyingListFactory);
+		if (entityReferenceCacheSize > 0) {
+			return instantiateEntityReferences(session, persister);
+		}
+		return configure(session, new PersistentEventList<E>(session, underlyingListFactory));
+	}
+
+	/**
+	 * Creates a collection that stores the identifiers of its entities, and
+	 * resolves them with its session. A category's lock and publisher are
+	 * kept.
+	 */
+	private PersistentEventList<E> instantiateEntityReferences(SharedSessionContractImplementor session,
+			CollectionPersister persister) {
+		final SessionEntityResolver<E> resolver = new SessionEntityResolver<E>(session, persister);
+		final EntityReferenceEventListFactory<E> factory;
+		if (underlyingListFactory instanceof CategoryEventListFactory) {
+			final CategoryEventListFactory<E> category = (CategoryEventListFactory<E>) underlyingListFactory;
+			factory = new EntityReferenceEventListFactory<E>(resolver, entityReferenceCacheSize,
+					category.getReadWriteLock(), category.getPublisher());
+		} else {
+			factory = new EntityReferenceEventListFactory<E>(resolver, entityReferenceCacheSize, null, null);
+		}
+		final PersistentEventList<E> collection = new PersistentEventList<E>(session, factory);
+		resolver.bind(collection);
+		return configure(session, collection);
 	}
 
 	/** {@inheritDoc} */
 	@SuppressWarnings("unchecked")
 	@Override
 	public PersistentCollection<E> wrap(SharedSessionContractImplementor session, Object collection) {
-		return new PersistentEventList<E>(session, (EventList<E>) collection);
+		return configure(session, new PersistentEventList<E>(session, (EventList<E>) collection));
+	}
+
+	/**
+	 * Applies the options of this type to a new collection.
+	 */
+	private PersistentEventList<E> configure(SharedSessionContractImplementor session,
+			PersistentEventList<E> collection) {
+		if (orderKeyGap > 0) {
+			collection.useOrderKeys(orderKeyGap);
+		}
+		if (elementIndex) {
+			collection.useElementIndex();
+		}
+		if (observer != null) {
+			collection.useObserver(observer);
+		}
+		if (releaseOnDispose) {
+			collection.useReleaseOnDispose();
+		}
+		if (pageSize > 0) {
+			collection.usePages(pageSize, cachedPages);
+		}
+		if (transactionEvents) {
+			collection.useTransactionEvents();
+		}
+		if (entityIdEquivalence && session != null) {
+			collection.useEquivalence(Equivalences.entityId(session));
+		} else if (equivalence != null) {
+			collection.useEquivalence(equivalence);
+		}
+		if (disposeOnClose && session != null) {
+			SessionCloseDisposer.register(session, collection);
+		}
+		return collection;
 	}
 
 	@Override
@@ -77,6 +596,9 @@ public class PersistentEventListType<E> implements UserCollectionType {
 
 	@Override
 	public boolean contains(Object collection, Object entity) {
+		if (collection instanceof PersistentEventList<?>) {
+			return ((PersistentEventList<?>) collection).containsElement(entity);
+		}
 		if (collection instanceof List<?>) {
 			List<?> lst = (List<?>) collection;
 			return lst.contains(entity);
@@ -93,7 +615,12 @@ public class PersistentEventListType<E> implements UserCollectionType {
 	@SuppressWarnings("unchecked")
 	@Override
 	public Object indexOf(Object collection, Object obj) {
-		final int index = ((EventList<E>) collection).indexOf(obj);
+		final int index;
+		if (collection instanceof PersistentEventList<?>) {
+			index = ((PersistentEventList<E>) collection).indexOfElement(obj);
+		} else {
+			index = ((EventList<E>) collection).indexOf(obj);
+		}
 		return (index < 0) ? null : Integer.valueOf(index);
 	}
 
@@ -103,25 +630,108 @@ public class PersistentEventListType<E> implements UserCollectionType {
 				: underlyingListFactory.createEventList(anticipatedSize);
 	}
 
+	/**
+	 * @return the managed counterparts of the elements: for entities, the
+	 *         copies Hibernate merged them into, from the copy cache; for
+	 *         values, copies if they are mutable
+	 */
+	@SuppressWarnings("unchecked")
+	private List<E> mergeElements(EventList<E> source, CollectionPersister persister, Object owner,
+			Map<Object, Object> copyCache, SharedSessionContractImplementor session) {
+		if (persister == null || session == null) {
+			return source;
+		}
+		final Type elementType = persister.getElementType();
+		final List<E> merged = new ArrayList<E>(source.size());
+		for (E element : source) {
+			merged.add((E) elementType.replace(element, null, session, owner, copyCache));
+		}
+		return merged;
+	}
+
+	/**
+	 * @return what matches merged elements, or null to match them by
+	 *         identity, as managed entities are unique per identifier, by the
+	 *         configured equivalence, or by position for components
+	 */
+	private Function<? super E, ?> getMergeKey(CollectionPersister persister) {
+		if (mergeKey != null) {
+			return mergeKey;
+		}
+		if (persister == null || persister.getElementType().isEntityType() || equivalence != null
+				|| entityIdEquivalence || isMergedByPosition(persister)) {
+			return null;
+		}
+		return Function.identity();
+	}
+
+	/**
+	 * @return whether merged elements are matched by position: components,
+	 *         unless a merge key or an equivalence is configured
+	 */
+	private boolean isMergedByPosition(CollectionPersister persister) {
+		return mergeKey == null && equivalence == null && persister != null
+				&& persister.getElementType().isComponentType();
+	}
+
+	/**
+	 * Copies the elements of a detached collection into the managed one, when
+	 * it is merged. The elements are matched to the managed ones, so that only
+	 * the elements that were actually inserted, removed, moved or changed are
+	 * published and written, rather than every position.
+	 *
+	 * @see #useMergeKey(Function)
+	 */
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	@Override
 	public Object replaceElements(Object original, Object target, CollectionPersister persister, Object owner,
 			Map copyCache, SharedSessionContractImplementor session) throws HibernateException {
+		if (original instanceof PersistentEventList && ((PersistentEventList<?>) original).isReleased()) {
+			throw new HibernateException("Cannot merge the released elements of a disposed collection");
+		}
 		final EventList<E> resultList = (EventList<E>) target;
 		final EventList<E> source = (EventList<E>) original;
+		final CollectionEvents.ReplaceElements event = new CollectionEvents.ReplaceElements();
+		event.begin();
 
-		resultList.getReadWriteLock().writeLock().lock();
-		source.getReadWriteLock().readLock().lock();
+		final String role = (persister == null) ? null : persister.getRole();
+		final boolean changed;
+		final long lockWait;
+		try (LockCoordinator locks = LockCoordinator.writeAndRead(resultList.getReadWriteLock(),
+				source.getReadWriteLock())) {
+			lockWait = locks.getWaitNanos();
+			CollectionStatistics.lockAcquired(locks.isContended(), lockWait);
+			if (LOG.isLoggable(Level.FINE)) {
+				LOG.fine("replaceElements waited " + lockWait + "ns for locks of " + role);
+			}
 
-		if (target instanceof CanUpdateAllElements) {
-			final CanUpdateAllElements<E> result = (CanUpdateAllElements<E>) target;
-			result.updateAll(source);
-		} else {
-			resultList.clear();
-			resultList.addAll(source);
+			final List<E> merged = mergeElements(source, persister, owner, copyCache, session);
+			final Function<? super E, ?> key = getMergeKey(persister);
+			if (key != null && target instanceof PersistentEventList) {
+				changed = ((PersistentEventList<E>) target).updateAllByKey(merged, key);
+			} else if (isMergedByPosition(persister) && target instanceof PersistentEventList) {
+				final Type elementType = persister.getElementType();
+				changed = ((PersistentEventList<E>) target).updateAllByPosition(merged,
+						(oldValue, newValue) -> !elementType.isEqual(oldValue, newValue));
+			} else if (target instanceof CanUpdateAllElements) {
+				final CanUpdateAllElements<E> result = (CanUpdateAllElements<E>) target;
+				changed = result.updateAll(merged);
+			} else {
+				resultList.clear();
+				changed = resultList.addAll(merged);
+			}
+		}
+
+		event.end();
+		if (event.shouldCommit()) {
+			event.role = role;
+			event.owner = CollectionEvents.describeOwner(owner,
+					(session == null || owner == null) ? null : session.getContextEntityIdentifier(owner));
+			event.size = resultList.size();
+			event.lockWait = lockWait;
+			event.changed = changed;
+			event.commit();
 		}
-		resultList.getReadWriteLock().writeLock().unlock();
-		source.getReadWriteLock().readLock().unlock();
 		return resultList;
 	}
 }
\ No newline at end of file
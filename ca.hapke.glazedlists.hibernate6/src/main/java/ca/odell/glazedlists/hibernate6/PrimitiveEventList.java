@@ -0,0 +1,365 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import ca.odell.glazedlists.AbstractEventList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.event.ListEventAssembler;
+import ca.odell.glazedlists.event.ListEventPublisher;
+import ca.odell.glazedlists.util.concurrent.LockFactory;
+import ca.odell.glazedlists.util.concurrent.ReadWriteLock;
+
+/**
+ * An EventList of numbers that stores them in a primitive array, and only
+ * boxes an element when it is read as an object. This saves the object header
+ * and reference of every element, for large value collections of a basic
+ * type.
+ * <p>
+ * Elements must not be null. Elements are compared with <code>equals</code>,
+ * so {@link #updateAll(List)} only reports values that actually changed.
+ * <p>
+ * Hibernate loads a null element for every list-index value without a row,
+ * so a collection whose list-index values have gaps can't be loaded into this
+ * list, unless its type persists sparse values with
+ * {@link PersistentEventListType#useOrderKeyGap(int) an order key gap}, which
+ * reads the gaps as such.
+ *
+ * @see IntEventList
+ * @see LongEventList
+ * @see DoubleEventList
+ *
+ * @author Nathan Hapke
+ */
+public abstract class PrimitiveEventList<E extends Number> extends AbstractEventList<E>
+		implements RandomAccess, CanUpdateAllElements<E>, CanHydrateElements<E> {
+
+	/** the primitive array holding the elements, followed by unused capacity */
+	Object elements;
+
+	int size;
+
+	PrimitiveEventList(int initialCapacity, ListEventPublisher publisher, ReadWriteLock readWriteLock) {
+		super(publisher);
+		this.elements = createArray(initialCapacity);
+		this.readWriteLock = (readWriteLock == null) ? LockFactory.DEFAULT.createReadWriteLock() : readWriteLock;
+	}
+
+	/**
+	 * @return a new primitive array of the given length
+	 */
+	abstract Object createArray(int length);
+
+	abstract int capacity(Object array);
+
+	/**
+	 * @return the element at the index of the array, boxed
+	 */
+	abstract E box(Object array, int index);
+
+	/**
+	 * Stores the value at the index of the array.
+	 */
+	abstract void unbox(Object array, int index, E value);
+
+	/**
+	 * Makes room for at least the given number of elements.
+	 */
+	final void ensureCapacity(int minCapacity) {
+		final int capacity = capacity(elements);
+		if (minCapacity > capacity) {
+			final Object grown = createArray(Math.max(minCapacity, capacity + (capacity >> 1) + 1));
+			System.arraycopy(elements, 0, grown, 0, size);
+			elements = grown;
+		}
+	}
+
+	final void checkIndex(int index, int bound) {
+		if (index < 0 || index >= bound) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	private void checkNotNull(Object value) {
+		if (value == null) {
+			throw new IllegalArgumentException("A " + getClass().getSimpleName() + " can't hold null");
+		}
+	}
+
+	/**
+	 * Unboxes a value, which must not be null.
+	 */
+	private void store(Object array, int index, E value) {
+		checkNotNull(value);
+		unbox(array, index, value);
+	}
+
+	/**
+	 * Makes the events of this list appear to come from the given list.
+	 *
+	 * @see UnderlyingPersistentEventList#publishAs(EventList)
+	 */
+	ListEventAssembler<E> publishAs(EventList<E> owner) {
+		if (!updates.getListEventListeners().isEmpty()) {
+			return null;
+		}
+		updates = new ListEventAssembler<E>(owner, publisher);
+		return updates;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public E get(int index) {
+		checkIndex(index, size);
+		return box(elements, index);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void add(int index, E element) {
+		checkIndex(index, size + 1);
+		checkNotNull(element);
+		ensureCapacity(size + 1);
+		System.arraycopy(elements, index, elements, index + 1, size - index);
+		unbox(elements, index, element);
+		size++;
+
+		updates.beginEvent();
+		updates.elementInserted(index, element);
+		updates.commitEvent();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean addAll(Collection<? extends E> collection) {
+		return addAll(size, collection);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean addAll(int index, Collection<? extends E> collection) {
+		checkIndex(index, size + 1);
+		final Object[] added = collection.toArray();
+		if (added.length == 0)
+			return false;
+		for (Object value : added) {
+			checkNotNull(value);
+		}
+
+		ensureCapacity(size + added.length);
+		System.arraycopy(elements, index, elements, index + added.length, size - index);
+		for (int i = 0; i < added.length; i++) {
+			@SuppressWarnings("unchecked")
+			final E value = (E) added[i];
+			unbox(elements, index + i, value);
+		}
+		size += added.length;
+
+		updates.beginEvent();
+		for (int i = 0; i < added.length; i++) {
+			@SuppressWarnings("unchecked")
+			final E value = (E) added[i];
+			updates.elementInserted(index + i, value);
+		}
+		updates.commitEvent();
+		return true;
+	}
+
+	/**
+	 * Appends the values without publishing a ListEvent, for loading the
+	 * elements of a collection. Each value is unboxed directly into the array.
+	 *
+	 * @throws IllegalArgumentException if a value is null, as loaded for a gap
+	 *                                  in the list-index values; nothing is
+	 *                                  appended then
+	 */
+	@Override
+	public void hydrate(Collection<? extends E> values) {
+		int position = 0;
+		for (E value : values) {
+			if (value == null) {
+				throw new IllegalArgumentException("Element " + position + " is null, as loaded for a gap in the "
+						+ "list-index values, which a " + getClass().getSimpleName()
+						+ " can't hold; persist the collection with an order key gap to read gaps");
+			}
+			position++;
+		}
+		ensureCapacity(size + values.size());
+		for (E value : values) {
+			store(elements, size, value);
+			size++;
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public E set(int index, E element) {
+		checkIndex(index, size);
+		final E previous = box(elements, index);
+		store(elements, index, element);
+
+		updates.beginEvent();
+		updates.elementUpdated(index, previous, element);
+		updates.commitEvent();
+		return previous;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public E remove(int index) {
+		checkIndex(index, size);
+		final E removed = box(elements, index);
+		System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+		size--;
+
+		updates.beginEvent();
+		updates.elementDeleted(index, removed);
+		updates.commitEvent();
+		return removed;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void clear() {
+		if (size == 0)
+			return;
+		updates.beginEvent();
+		for (int i = 0; i < size; i++) {
+			updates.elementDeleted(0, box(elements, i));
+		}
+		size = 0;
+		updates.commitEvent();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean removeAll(Collection<?> collection) {
+		return compact(membersOf(collection), false);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean retainAll(Collection<?> collection) {
+		return compact(membersOf(collection), true);
+	}
+
+	private static Collection<?> membersOf(Collection<?> collection) {
+		if (collection instanceof Set) {
+			return collection;
+		}
+		return new HashSet<Object>(collection);
+	}
+
+	/**
+	 * Keeps the elements whose membership equals <code>retain</code>, moving
+	 * them to the front in a single pass.
+	 */
+	private boolean compact(Collection<?> members, boolean retain) {
+		if (size == 0)
+			return false;
+
+		updates.beginEvent();
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			final E value = box(elements, i);
+			if (members.contains(value) == retain) {
+				if (kept != i) {
+					System.arraycopy(elements, i, elements, kept, 1);
+				}
+				kept++;
+			} else {
+				updates.elementDeleted(kept, value);
+			}
+		}
+
+		if (kept == size) {
+			updates.discardEvent();
+			return false;
+		}
+		size = kept;
+		updates.commitEvent();
+		return true;
+	}
+
+	/**
+	 * Replaces the elements with the given ones, publishing only the changed
+	 * ranges as one ListEvent.
+	 *
+	 * @throws IllegalArgumentException if a value is null; nothing is changed
+	 *                                  then
+	 */
+	@Override
+	public boolean updateAll(List<? extends E> input) {
+		for (E value : input) {
+			checkNotNull(value);
+		}
+		final ListDiff<E> diff = ListDiff.computeByEquals(this, input);
+		final int hunkCount = diff.getHunkCount();
+		if (hunkCount == 0)
+			return false;
+
+		final Object result = createArray(Math.max(input.size(), 10));
+		int resultSize = 0;
+		updates.beginEvent();
+
+		int oldIndex = 0;
+		for (int h = 0; h < hunkCount; h++) {
+			final int oldStart = diff.getOldStart(h);
+			final int oldLength = diff.getOldLength(h);
+			final int newStart = diff.getNewStart(h);
+			final int newLength = diff.getNewLength(h);
+
+			// unchanged elements up to the hunk
+			System.arraycopy(elements, oldIndex, result, resultSize, oldStart - oldIndex);
+			resultSize += oldStart - oldIndex;
+
+			final int replaced = Math.min(oldLength, newLength);
+			for (int i = 0; i < replaced; i++) {
+				final E newValue = input.get(newStart + i);
+				updates.elementUpdated(resultSize, box(elements, oldStart + i), newValue);
+				store(result, resultSize++, newValue);
+			}
+			for (int i = replaced; i < oldLength; i++) {
+				updates.elementDeleted(resultSize, box(elements, oldStart + i));
+			}
+			for (int i = replaced; i < newLength; i++) {
+				final E newValue = input.get(newStart + i);
+				updates.elementInserted(resultSize, newValue);
+				store(result, resultSize++, newValue);
+			}
+			oldIndex = oldStart + oldLength;
+		}
+		System.arraycopy(elements, oldIndex, result, resultSize, size - oldIndex);
+		resultSize += size - oldIndex;
+
+		elements = result;
+		size = resultSize;
+		updates.commitEvent();
+		return true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean contains(Object object) {
+		return indexOf(object) >= 0;
+	}
+
+	/**
+	 * Releases the elements, without publishing a ListEvent. This list is empty
+	 * afterwards and must not be used anymore.
+	 */
+	@Override
+	public void dispose() {
+		elements = createArray(0);
+		size = 0;
+	}
+}
@@ -0,0 +1,68 @@
+package ca.odell.glazedlists.hibernate6;
+
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.event.ListEventPublisher;
+import ca.odell.glazedlists.util.concurrent.ReadWriteLock;
+
+/**
+ * A {@link PersistentEventListFactory} that creates {@link PrimitiveEventList}s
+ * for Integer, Long or Double elements.
+ *
+ * @author Nathan Hapke
+ */
+public final class PrimitiveEventListFactory<E> implements PersistentEventListFactory<E> {
+
+	private final Class<E> elementType;
+
+	/** the shared lock and publisher, or null to create them per list */
+	private final ReadWriteLock lock;
+	private final ListEventPublisher publisher;
+
+	/**
+	 * Constructor for EventLists with their own lock and publisher.
+	 *
+	 * @param elementType Integer, Long or Double
+	 */
+	public PrimitiveEventListFactory(Class<E> elementType) {
+		this(elementType, null, null);
+	}
+
+	/**
+	 * Constructor for EventLists sharing the given lock and publisher.
+	 *
+	 * @param elementType Integer, Long or Double
+	 */
+	public PrimitiveEventListFactory(Class<E> elementType, ReadWriteLock lock, ListEventPublisher publisher) {
+		if (elementType != Integer.class && elementType != Long.class && elementType != Double.class) {
+			throw new IllegalArgumentException("No primitive storage for " + elementType);
+		}
+		this.elementType = elementType;
+		this.lock = lock;
+		this.publisher = publisher;
+	}
+
+	/**
+	 * @return the type of the elements
+	 */
+	public Class<E> getElementType() {
+		return elementType;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public EventList<E> createEventList() {
+		return createEventList(10);
+	}
+
+	/** {@inheritDoc} */
+	@SuppressWarnings("unchecked")
+	@Override
+	public EventList<E> createEventList(int initalCapacity) {
+		if (elementType == Integer.class) {
+			return (EventList<E>) new IntEventList(initalCapacity, publisher, lock);
+		} else if (elementType == Long.class) {
+			return (EventList<E>) new LongEventList(initalCapacity, publisher, lock);
+		}
+		return (EventList<E>) new DoubleEventList(initalCapacity, publisher, lock);
+	}
+}
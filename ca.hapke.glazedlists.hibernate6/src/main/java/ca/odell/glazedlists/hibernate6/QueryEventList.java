@@ -0,0 +1,226 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.Type;
+
+import ca.odell.glazedlists.util.concurrent.Lock;
+
+/**
+ * An EventList holding the results of a query, which can be refreshed on
+ * demand or on a schedule. A refresh doesn't clear the list and add the new
+ * results; it matches the results to the current elements by a key, such as
+ * the entity identifier, and publishes one ListEvent with only the elements
+ * that were actually inserted, deleted or changed. So the SortedLists and
+ * FilterLists built on this list only redo the work for those elements.
+ * <p>
+ * The query runs without holding any lock of this list; only applying its
+ * results takes the write lock. A background refresh therefore doesn't block
+ * readers while the database is queried. Its ListEvents are published on the
+ * refresh thread.
+ * <p>
+ * An element whose key is unchanged is only replaced if the
+ * {@link #setChangeDetector(BiPredicate) change detector} says it changed.
+ * The results of an entity query are new instances on every refresh, so they
+ * must not be compared by equality: for the results of an HQL query of an
+ * entity class, the detector compares the version of the entities, or the
+ * values of their properties other than collections if they aren't
+ * versioned. A query given as a supplier that returns entities needs a
+ * detector of its own.
+ *
+ * <pre>
+ * QueryEventList&lt;User&gt; users = new QueryEventList&lt;&gt;(sessionFactory,
+ *         "from User order by userName", User.class, User::getId);
+ * users.refreshEvery(30, TimeUnit.SECONDS);
+ * </pre>
+ *
+ * @author Nathan Hapke
+ */
+public class QueryEventList<E> extends UnderlyingPersistentEventList<E> {
+
+	private static final Logger LOG = Logger.getLogger(QueryEventList.class.getName());
+
+	private final Supplier<? extends List<? extends E>> query;
+
+	private final Function<? super E, ?> keyFunction;
+
+	/** whether an element with an unchanged key is updated */
+	private BiPredicate<? super E, ? super E> changeDetector = (oldValue, newValue) -> !Objects.equals(oldValue,
+			newValue);
+
+	/** serializes refreshes, so that results are applied in query order */
+	private final Object refreshLock = new Object();
+
+	/** runs the scheduled refreshes, or null */
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * Constructor for a query that runs in a new session for every refresh. If
+	 * the results are entities, their state decides whether they changed.
+	 *
+	 * @param sessionFactory the factory that opens the sessions
+	 * @param hql            the HQL query
+	 * @param resultClass    the type of the results
+	 * @param keyFunction    what identifies an element across refreshes
+	 */
+	public QueryEventList(SessionFactory sessionFactory, String hql, Class<E> resultClass,
+			Function<? super E, ?> keyFunction) {
+		this(() -> sessionFactory.fromSession(session -> session.createQuery(hql, resultClass).list()),
+				keyFunction);
+		final BiPredicate<E, E> entityState = entityStateDetector(sessionFactory, resultClass);
+		if (entityState != null) {
+			changeDetector = entityState;
+		}
+	}
+
+	/**
+	 * Constructor for any query, such as a parameterized JPQL or Criteria
+	 * query.
+	 *
+	 * @param query       returns the current results on every refresh
+	 * @param keyFunction what identifies an element across refreshes
+	 */
+	public QueryEventList(Supplier<? extends List<? extends E>> query, Function<? super E, ?> keyFunction) {
+		if (query == null || keyFunction == null) {
+			throw new IllegalArgumentException("Query and key function must not be null");
+		}
+		this.query = query;
+		this.keyFunction = keyFunction;
+	}
+
+	/**
+	 * @return a detector that compares the versions of the entities of the
+	 *         class, or the values of their properties other than collections
+	 *         if they aren't versioned; null if the class isn't an entity
+	 */
+	static <E> BiPredicate<E, E> entityStateDetector(SessionFactory sessionFactory, Class<E> resultClass) {
+		final SessionFactoryImplementor factory = sessionFactory.unwrap(SessionFactoryImplementor.class);
+		final EntityPersister persister = factory.getMappingMetamodel().findEntityDescriptor(resultClass);
+		if (persister == null) {
+			return null;
+		}
+		if (persister.isVersioned()) {
+			final Type versionType = persister.getVersionType();
+			return (oldValue, newValue) -> (oldValue == null || newValue == null) ? oldValue != newValue
+					: !versionType.isEqual(persister.getVersion(oldValue), persister.getVersion(newValue));
+		}
+		final Type[] types = persister.getPropertyTypes();
+		return (oldValue, newValue) -> {
+			if (oldValue == null || newValue == null) {
+				return oldValue != newValue;
+			}
+			final Object[] oldState = persister.getValues(oldValue);
+			final Object[] newState = persister.getValues(newValue);
+			for (int i = 0; i < types.length; i++) {
+				if (!types[i].isCollectionType() && !types[i].isEqual(oldState[i], newState[i], factory)) {
+					return true;
+				}
+			}
+			return false;
+		};
+	}
+
+	/**
+	 * Sets what decides whether an element whose key is unchanged was changed,
+	 * and is replaced by the new result. By default it is replaced unless the
+	 * old and new element are equal, or, for the entities of an HQL query,
+	 * unless their version or state is. A query supplier that returns
+	 * entities, which are equal by identity or identifier, must set a
+	 * detector that compares their state or version instead, or every element
+	 * is reported as updated on every refresh.
+	 */
+	public void setChangeDetector(BiPredicate<? super E, ? super E> changeDetector) {
+		if (changeDetector == null) {
+			throw new IllegalArgumentException("Change detector must not be null");
+		}
+		this.changeDetector = changeDetector;
+	}
+
+	/**
+	 * Runs the query and applies its results as one ListEvent.
+	 *
+	 * @return whether any element was inserted, deleted or changed
+	 */
+	public boolean refresh() {
+		synchronized (refreshLock) {
+			final long start = System.nanoTime();
+			final List<? extends E> results = query.get();
+
+			final boolean changed;
+			final Lock lock = getReadWriteLock().writeLock();
+			lock.lock();
+			try {
+				changed = updateAllByKey(results, keyFunction, changeDetector);
+			} finally {
+				lock.unlock();
+			}
+			if (LOG.isLoggable(Level.FINE)) {
+				LOG.fine("Refreshed " + results.size() + " results in " + (System.nanoTime() - start) / 1000000L
+						+ "ms" + (changed ? "" : ", unchanged"));
+			}
+			return changed;
+		}
+	}
+
+	/**
+	 * Refreshes this list on a background thread, with the given delay
+	 * between the end of one refresh and the start of the next. Failed
+	 * refreshes are logged, and retried after the delay. Replaces an earlier
+	 * schedule.
+	 */
+	public synchronized void refreshEvery(long delay, TimeUnit unit) {
+		stopRefreshing();
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "QueryEventList refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::refreshLogged, delay, delay, unit);
+	}
+
+	private void refreshLogged() {
+		try {
+			refresh();
+		} catch (RuntimeException e) {
+			LOG.log(Level.WARNING, "Refresh failed", e);
+		}
+	}
+
+	/**
+	 * Stops the scheduled refreshes. A refresh that is running is finished.
+	 */
+	public synchronized void stopRefreshing() {
+		if (scheduler != null) {
+			scheduler.shutdown();
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * @return whether refreshes are scheduled
+	 */
+	public synchronized boolean isRefreshing() {
+		return scheduler != null;
+	}
+
+	/**
+	 * Stops the scheduled refreshes and releases the elements.
+	 */
+	@Override
+	public void dispose() {
+		stopRefreshing();
+		super.dispose();
+	}
+}
@@ -0,0 +1,109 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+/**
+ * Disposes the {@link PersistentEventList}s created by a session when that
+ * session ends, after letting the collections of entity references hold their
+ * elements.
+ *
+ * @author Nathan Hapke
+ */
+final class SessionCloseDisposer extends BaseSessionEventListener {
+
+	private static final long serialVersionUID = 0L;
+
+	/** the disposer of each open session */
+	private static final Map<SharedSessionContractImplementor, SessionCloseDisposer> DISPOSERS = new WeakHashMap<>();
+
+	/** weak, since the disposers are the values of a map keyed by session */
+	private final transient WeakReference<SharedSessionContractImplementor> session;
+
+	/** weak, so collections the session has let go of can still be collected */
+	private final transient List<WeakReference<PersistentEventList<?>>> collections = new ArrayList<>();
+
+	/** the collections of entity references to hold the elements of */
+	private final transient List<WeakReference<PersistentEventList<?>>> holders = new ArrayList<>();
+
+	private SessionCloseDisposer(SharedSessionContractImplementor session) {
+		this.session = new WeakReference<>(session);
+	}
+
+	/**
+	 * Disposes the collection when the session ends.
+	 */
+	static void register(SharedSessionContractImplementor session, PersistentEventList<?> collection) {
+		final SessionCloseDisposer disposer = of(session);
+		synchronized (disposer) {
+			disposer.collections.add(new WeakReference<PersistentEventList<?>>(collection));
+		}
+	}
+
+	/**
+	 * Lets the collection hold the entities it references when the session
+	 * ends, while they can still be resolved.
+	 *
+	 * @see PersistentEventList#holdEntityReferences()
+	 */
+	static void holdOnClose(SharedSessionContractImplementor session, PersistentEventList<?> collection) {
+		final SessionCloseDisposer disposer = of(session);
+		synchronized (disposer) {
+			disposer.holders.add(new WeakReference<PersistentEventList<?>>(collection));
+		}
+	}
+
+	/**
+	 * @return the disposer of the session, which listens to it
+	 */
+	private static SessionCloseDisposer of(SharedSessionContractImplementor session) {
+		synchronized (DISPOSERS) {
+			SessionCloseDisposer existing = DISPOSERS.get(session);
+			if (existing == null) {
+				existing = new SessionCloseDisposer(session);
+				session.getEventListenerManager().addListener(existing);
+				DISPOSERS.put(session, existing);
+			}
+			return existing;
+		}
+	}
+
+	/**
+	 * Lets the registered collections that are still reachable hold their
+	 * entities, and then disposes them. The session is still open.
+	 */
+	@Override
+	public void end() {
+		final SharedSessionContractImplementor ended = session.get();
+		synchronized (DISPOSERS) {
+			DISPOSERS.remove(ended);
+		}
+		final List<WeakReference<PersistentEventList<?>>> held;
+		final List<WeakReference<PersistentEventList<?>>> disposed;
+		synchronized (this) {
+			held = new ArrayList<>(holders);
+			holders.clear();
+			disposed = new ArrayList<>(collections);
+			collections.clear();
+		}
+		for (WeakReference<PersistentEventList<?>> reference : held) {
+			final PersistentEventList<?> collection = reference.get();
+			// unless it was reattached to another session since
+			if (collection != null && collection.getSession() == ended) {
+				collection.holdEntityReferences();
+			}
+		}
+		for (WeakReference<PersistentEventList<?>> reference : disposed) {
+			final PersistentEventList<?> collection = reference.get();
+			if (collection != null) {
+				collection.dispose();
+			}
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package ca.odell.glazedlists.hibernate6;
+
+import org.hibernate.HibernateException;
+import org.hibernate.LazyInitializationException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+
+/**
+ * Resolves the elements of a collection with the session the collection is
+ * currently attached to. Entities are resolved like
+ * <code>Session.getReference</code>, so an entity the session doesn't contain
+ * yet is returned as an uninitialized proxy, which Hibernate batch fetches
+ * together with other proxies of its class.
+ * <p>
+ * When a session the collection was attached to is closed, the collection
+ * resolves and holds all of its elements first, so it can be used detached.
+ *
+ * @author Nathan Hapke
+ */
+final class SessionEntityResolver<E> implements EntityResolver<E> {
+
+	private static final long serialVersionUID = 0L;
+
+	private final String entityName;
+
+	/** Long, Integer or Short */
+	private final Class<?> idType;
+
+	private PersistentEventList<?> collection;
+
+	/** the last session the collection was registered with */
+	private transient SharedSessionContractImplementor registered;
+
+	/**
+	 * @throws HibernateException if the elements of the collection aren't
+	 *                            entities with an integral identifier
+	 */
+	SessionEntityResolver(SharedSessionContractImplementor session, CollectionPersister persister) {
+		final Type elementType = persister.getElementType();
+		if (!elementType.isEntityType() || !((EntityType) elementType).isReferenceToPrimaryKey()) {
+			throw new HibernateException("Entity references need a collection of entities: " + persister.getRole());
+		}
+		final EntityType entityType = (EntityType) elementType;
+		this.entityName = entityType.getAssociatedEntityName();
+		this.idType = entityType.getIdentifierOrUniqueKeyType(session.getFactory()).getReturnedClass();
+		if (idType != Long.class && idType != Integer.class && idType != Short.class) {
+			throw new HibernateException("Entity references need a Long, Integer or Short identifier, not "
+					+ idType.getName() + ": " + persister.getRole());
+		}
+	}
+
+	/**
+	 * Sets the collection whose session resolves the elements.
+	 */
+	void bind(PersistentEventList<?> collection) {
+		this.collection = collection;
+	}
+
+	private SharedSessionContractImplementor getSession() {
+		final SharedSessionContractImplementor session = (collection == null) ? null : collection.getSession();
+		if (session == null || !session.isOpenOrWaitingForAutoClose()) {
+			return null;
+		}
+		if (session != registered) {
+			registered = session;
+			SessionCloseDisposer.holdOnClose(session, collection);
+		}
+		return session;
+	}
+
+	/** {@inheritDoc} */
+	@SuppressWarnings("unchecked")
+	@Override
+	public E resolve(long id) {
+		final SharedSessionContractImplementor session = getSession();
+		if (session == null) {
+			throw new LazyInitializationException("could not resolve element " + entityName + "#" + id
+					+ " - no session; the collection was evicted or cleared from its session before it was closed");
+		}
+		final Object identifier;
+		if (idType == Integer.class) {
+			identifier = Integer.valueOf((int) id);
+		} else if (idType == Short.class) {
+			identifier = Short.valueOf((short) id);
+		} else {
+			identifier = Long.valueOf(id);
+		}
+		return (E) session.internalLoad(entityName, identifier, false, false);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Long identify(Object entity) {
+		final SharedSessionContractImplementor session = getSession();
+		if (session == null) {
+			return null;
+		}
+		final Object id = session.getContextEntityIdentifier(entity);
+		return (id instanceof Number) ? Long.valueOf(((Number) id).longValue()) : null;
+	}
+}
@@ -0,0 +1,206 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.StatelessSession;
+import org.hibernate.query.SelectionQuery;
+
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.util.concurrent.Lock;
+
+/**
+ * Fills an EventList with the results of a query while they are read, a
+ * chunk at a time. Each chunk is appended with one <code>addAll</code> under
+ * the list's write lock, so listeners receive one insert block per chunk, and
+ * a bound table shows the first rows as soon as the first chunk is read. The
+ * lock is released while the next chunk is read from the database.
+ * <p>
+ * A loader is typically run on a background thread, with the list's
+ * listeners on the event dispatch thread behind a thread proxy list.
+ * {@link #cancel()} stops it after the current chunk.
+ * <p>
+ * For pipelines that only process each element once,
+ * {@link #setDiscardChunks(boolean)} removes every chunk again right after
+ * its listeners were notified, so the list never holds more than one chunk.
+ * Reading from a {@link StatelessSession} then also keeps the persistence
+ * context from growing.
+ *
+ * <pre>
+ * StreamingEventListLoader&lt;User&gt; loader = new StreamingEventListLoader&lt;&gt;(users, 200);
+ * loader.load(session.createQuery("from User order by name", User.class));
+ * </pre>
+ *
+ * @author Nathan Hapke
+ */
+public final class StreamingEventListLoader<E> {
+
+	private static final Logger LOG = Logger.getLogger(StreamingEventListLoader.class.getName());
+
+	private final EventList<E> target;
+
+	private final int chunkSize;
+
+	/** whether each chunk is removed again after it was published */
+	private boolean discardChunks = false;
+
+	private volatile boolean cancelled = false;
+
+	/**
+	 * @param target    the list the elements are appended to
+	 * @param chunkSize the number of elements appended at a time
+	 */
+	public StreamingEventListLoader(EventList<E> target, int chunkSize) {
+		if (target == null) {
+			throw new IllegalArgumentException("EventList must not be null");
+		}
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+		}
+		this.target = target;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Lets each chunk be removed from the list again right after it was
+	 * appended, once its listeners processed it.
+	 */
+	public void setDiscardChunks(boolean discardChunks) {
+		this.discardChunks = discardChunks;
+	}
+
+	/**
+	 * Stops a running load once the current chunk is published. May be
+	 * called from any thread.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * @return whether {@link #cancel()} was called
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Scrolls through the results of the query, forward only, and closes them
+	 * afterwards.
+	 *
+	 * @return the number of elements appended
+	 */
+	public int load(SelectionQuery<? extends E> query) {
+		try (ScrollableResults<? extends E> results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+			return load(results);
+		}
+	}
+
+	/**
+	 * Reads the results from their current position on. They are not closed.
+	 *
+	 * @return the number of elements appended
+	 */
+	public int load(ScrollableResults<? extends E> results) {
+		return load(new ScrollIterator<E>(results));
+	}
+
+	/**
+	 * Reads the elements of the stream. It is not closed.
+	 *
+	 * @return the number of elements appended
+	 */
+	public int load(Stream<? extends E> elements) {
+		return load(elements.iterator());
+	}
+
+	/**
+	 * Reads the elements of the iterator.
+	 *
+	 * @return the number of elements appended
+	 */
+	public int load(Iterator<? extends E> elements) {
+		final List<E> chunk = new ArrayList<E>(chunkSize);
+		int loaded = 0;
+		while (!cancelled) {
+			// read the chunk without holding the lock
+			while (chunk.size() < chunkSize && elements.hasNext()) {
+				chunk.add(elements.next());
+			}
+			if (chunk.isEmpty()) {
+				break;
+			}
+			publish(chunk);
+			loaded += chunk.size();
+			if (chunk.size() < chunkSize) {
+				break;
+			}
+			chunk.clear();
+		}
+		if (LOG.isLoggable(Level.FINE)) {
+			LOG.fine("Loaded " + loaded + " elements in chunks of " + chunkSize + (cancelled ? ", cancelled" : ""));
+		}
+		return loaded;
+	}
+
+	/**
+	 * Appends the chunk as one insert block.
+	 */
+	private void publish(List<E> chunk) {
+		final Lock lock = target.getReadWriteLock().writeLock();
+		lock.lock();
+		try {
+			final int start = target.size();
+			target.addAll(chunk);
+			if (discardChunks) {
+				if (start == 0) {
+					target.clear();
+				} else {
+					target.subList(start, target.size()).clear();
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Reads ahead one row of the results, to tell whether there is another.
+	 */
+	private static final class ScrollIterator<E> implements Iterator<E> {
+		private final ScrollableResults<? extends E> results;
+
+		/** whether the results are positioned on a row that wasn't returned yet, or null if unknown */
+		private Boolean ahead;
+
+		ScrollIterator(ScrollableResults<? extends E> results) {
+			this.results = results;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public boolean hasNext() {
+			if (ahead == null) {
+				ahead = Boolean.valueOf(results.next());
+			}
+			return ahead.booleanValue();
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public E next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			ahead = null;
+			return results.get();
+		}
+	}
+}
@@ -2,12 +2,17 @@ package ca.odell.glazedlists.hibernate6;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
 
 import ca.odell.glazedlists.AbstractEventList;
 import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.event.ListEventAssembler;
 import ca.odell.glazedlists.event.ListEventPublisher;
 import ca.odell.glazedlists.util.concurrent.LockFactory;
 import ca.odell.glazedlists.util.concurrent.ReadWriteLock;
@@ -19,9 +24,12 @@ import ca.odell.glazedlists.util.concurrent.ReadWriteLock;
  * @author Nathan Hapke
  */
 public class UnderlyingPersistentEventList<E> extends AbstractEventList<E>
-		implements RandomAccess, CanUpdateAllElements<E> {
+		implements RandomAccess, CanUpdateAllElements<E>, CanHydrateElements<E> {
 
-	private List<E> data;
+	private ArrayList<E> data;
+
+	/** optional lookup structure for contains and indexOf, or null */
+	private ElementIndex elementIndex;
 
 	public UnderlyingPersistentEventList() {
 		this(LockFactory.DEFAULT.createReadWriteLock());
@@ -46,6 +54,23 @@ public class UnderlyingPersistentEventList<E> extends AbstractEventList<E>
 		this.readWriteLock = (readWriteLock == null) ? LockFactory.DEFAULT.createReadWriteLock() : readWriteLock;
 	}
 
+	/**
+	 * Makes the events of this list appear to come from the given list, which
+	 * wraps this one, and returns the assembler to register its listeners with.
+	 * The wrapper then doesn't need to forward each event through an assembler
+	 * of its own.
+	 *
+	 * @return the assembler now used by both lists, or null if this list
+	 *         already has listeners, which would then stop receiving events
+	 */
+	ListEventAssembler<E> publishAs(EventList<E> owner) {
+		if (!updates.getListEventListeners().isEmpty()) {
+			return null;
+		}
+		updates = new ListEventAssembler<E>(owner, publisher);
+		return updates;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void add(int index, E element) {
@@ -54,6 +79,7 @@ public class UnderlyingPersistentEventList<E> extends AbstractEventList<E>
 		updates.elementInserted(index, element);
 		// do the actual add
 		data.add(index, element);
+		indexAdded(index, index + 1);
 		// fire the event
 		updates.commitEvent();
 	}
@@ -66,6 +92,7 @@ public class UnderlyingPersistentEventList<E> extends AbstractEventList<E>
 		updates.elementInserted(size(), element);
 		// do the actual add
 		boolean result = data.add(element);
+		indexAdded(data.size() - 1, data.size());
 		// fire the event
 		updates.commitEvent();
 		return result;
@@ -84,63 +111,224 @@ public class UnderlyingPersistentEventList<E> extends AbstractEventList<E>
 		if (collection.size() == 0)
 			return false;
 
-		// create the change event
+		// do the actual add, shifting the tail only once
+		final int before = data.size();
+		data.addAll(index, collection);
+		final int inserted = data.size() - before;
+		if (inserted == 0)
+			return false;
+		indexAdded(index, index + inserted);
+
+		// create and fire the change event as one block
 		updates.beginEvent();
-		for (Iterator<? extends E> i = collection.iterator(); i.hasNext();) {
-			E value = i.next();
-			updates.elementInserted(index, value);
-			data.add(index, value);
-			index++;
+		for (int i = index; i < index + inserted; i++) {
+			updates.elementInserted(i, data.get(i));
 		}
-		// fire the event
 		updates.commitEvent();
-		return !collection.isEmpty();
+		return true;
+	}
+
+	/**
+	 * Fills this list with the given values without creating or publishing a
+	 * ListEvent.
+	 * <p>
+	 * This is only meant for Hibernate's initialization of the collection, when
+	 * no listener may observe the change. The backing storage is sized for the
+	 * values up front.
+	 */
+	@Override
+	public void hydrate(Collection<? extends E> values) {
+		final int before = data.size();
+		if (data.isEmpty()) {
+			data = new ArrayList<E>(values);
+		} else {
+			data.ensureCapacity(data.size() + values.size());
+			data.addAll(values);
+		}
+		indexAdded(before, data.size());
 	}
 
 	/**
 	 * changes the elements of this list to match the provided input.
-	 * 
+	 *
 	 * This is needed so that the set of updates can be fired as one big set.
+	 * The changes are computed with {@link ListDiff}, so inserting or removing
+	 * a single element produces a single insert or delete, rather than an
+	 * update for every element after it.
 	 */
 	public boolean updateAll(List<? extends E> input) {
-		if (input.size() == 0)
+		return updateAll(input, null);
+	}
+
+	/**
+	 * Like {@link #updateAll(List)}, but elements the equivalence accepts as
+	 * the same as the old ones are neither replaced nor reported; the old
+	 * instances stay in place.
+	 *
+	 * @param equivalence the equivalence, or null for identity
+	 */
+	boolean updateAll(List<? extends E> input, BiPredicate<? super E, ? super E> equivalence) {
+		final ListDiff<E> diff = ListDiff.compute(data, input, equivalence);
+		final int hunkCount = diff.getHunkCount();
+		if (hunkCount == 0)
 			return false;
 
-		boolean changed = false;
+		final ArrayList<E> result = new ArrayList<E>(Math.max(input.size(), 10));
+		boolean modified = false;
+		boolean committed = false;
 		updates.beginEvent();
+		try {
+			int oldIndex = 0;
+			for (int h = 0; h < hunkCount; h++) {
+				final int oldStart = diff.getOldStart(h);
+				final int oldLength = diff.getOldLength(h);
+				final int newStart = diff.getNewStart(h);
+				final int newLength = diff.getNewLength(h);
 
-		int i = 0;
-		while (i < input.size()) {
-			E newValue = input.get(i);
-			if (i >= data.size()) {
-				data.add(newValue);
-				updates.elementInserted(i, newValue);
-				changed = true;
-			} else {
-				E oldValue = data.get(i);
-				if (oldValue != newValue) {
-					data.set(i, newValue);
-					updates.elementUpdated(i, oldValue, newValue);
-					changed = true;
+				// unchanged elements up to the hunk
+				result.addAll(data.subList(oldIndex, oldStart));
+
+				// replaced elements are reported as updates, the rest as inserts or deletes
+				final int replaced = Math.min(oldLength, newLength);
+				for (int i = 0; i < replaced; i++) {
+					E oldValue = data.get(oldStart + i);
+					E newValue = input.get(newStart + i);
+					if (equivalence != null && equivalence.test(oldValue, newValue)) {
+						// only if the diff gave up and reported the range positionally
+						result.add(oldValue);
+						continue;
+					}
+					updates.elementUpdated(result.size(), oldValue, newValue);
+					result.add(newValue);
+					modified = true;
 				}
+				for (int i = replaced; i < oldLength; i++) {
+					updates.elementDeleted(result.size(), data.get(oldStart + i));
+					modified = true;
+				}
+				for (int i = replaced; i < newLength; i++) {
+					E newValue = input.get(newStart + i);
+					updates.elementInserted(result.size(), newValue);
+					result.add(newValue);
+					modified = true;
+				}
+				oldIndex = oldStart + oldLength;
+			}
+			result.addAll(data.subList(oldIndex, data.size()));
+
+			if (!modified) {
+				return false;
+			}
+
+			data = result;
+			if (elementIndex != null) {
+				elementIndex.rebuild(data);
+			}
+			committed = true;
+			updates.commitEvent();
+			return true;
+		} finally {
+			// a failing equivalence leaves the list and its listeners as they were
+			if (!committed) {
+				updates.discardEvent();
 			}
-			i++;
-		}
-		int j = i;
-		while (data.size() > i) {
-			E oldValue = data.get(j);
-			data.remove(i);
-			updates.elementDeleted(j, oldValue);
-			j++;
-			changed = true;
 		}
+	}
+
+	/**
+	 * Replaces the elements with the given ones, matching them by key rather
+	 * than by identity; null elements have a null key. An element whose key is
+	 * gone is deleted, and one with a new key is inserted. An element whose
+	 * key is kept is only replaced, and reported as updated, if
+	 * <code>changed</code> says so; otherwise the old instance stays in place.
+	 * All changes are published as one ListEvent.
+	 *
+	 * @return whether any element was inserted, deleted or updated
+	 */
+	boolean updateAllByKey(List<? extends E> input, Function<? super E, ?> key,
+			BiPredicate<? super E, ? super E> changed) {
+		return updateAllByKeys(input, ListDiff.keys(data, key), ListDiff.keys(input, key), changed);
+	}
+
+	/**
+	 * Like {@link #updateAllByKey(List, Function, BiPredicate)}, but matches
+	 * the elements by position: the element at each position the old and the
+	 * new elements share is only replaced if <code>changed</code> says so,
+	 * and the rest is deleted or inserted at the end.
+	 *
+	 * @return whether any element was inserted, deleted or updated
+	 */
+	boolean updateAllByPosition(List<? extends E> input, BiPredicate<? super E, ? super E> changed) {
+		return updateAllByKeys(input, ListDiff.positions(data.size()), ListDiff.positions(input.size()), changed);
+	}
+
+	/**
+	 * Replaces the elements with the given ones, matching the old and the new
+	 * keys, which are aligned with the old and the new elements.
+	 */
+	private boolean updateAllByKeys(List<? extends E> input, List<Object> oldKeys, List<Object> newKeys,
+			BiPredicate<? super E, ? super E> changed) {
+		final ListDiff<Object> diff = ListDiff.computeByEquals(oldKeys, newKeys);
+		final int hunkCount = diff.getHunkCount();
+
+		final ArrayList<E> result = new ArrayList<E>(Math.max(input.size(), 10));
+		boolean modified = hunkCount > 0;
+		boolean committed = false;
+		updates.beginEvent();
+		try {
+			int oldIndex = 0;
+			int newIndex = 0;
+			for (int h = 0; h <= hunkCount; h++) {
+				final int oldStart = (h < hunkCount) ? diff.getOldStart(h) : data.size();
+
+				// elements with the same keys up to the hunk
+				for (int i = oldIndex; i < oldStart; i++) {
+					final E oldValue = data.get(i);
+					final E newValue = input.get(newIndex + i - oldIndex);
+					if (changed.test(oldValue, newValue)) {
+						updates.elementUpdated(result.size(), oldValue, newValue);
+						result.add(newValue);
+						modified = true;
+					} else {
+						result.add(oldValue);
+					}
+				}
+				if (h == hunkCount) {
+					break;
+				}
+
+				// different keys are different elements, so nothing is updated
+				final int oldLength = diff.getOldLength(h);
+				final int newStart = diff.getNewStart(h);
+				final int newLength = diff.getNewLength(h);
+				for (int i = 0; i < oldLength; i++) {
+					updates.elementDeleted(result.size(), data.get(oldStart + i));
+				}
+				for (int i = 0; i < newLength; i++) {
+					final E newValue = input.get(newStart + i);
+					updates.elementInserted(result.size(), newValue);
+					result.add(newValue);
+				}
+				oldIndex = oldStart + oldLength;
+				newIndex = newStart + newLength;
+			}
 
-		if (changed) {
+			if (!modified) {
+				return false;
+			}
+			data = result;
+			if (elementIndex != null) {
+				elementIndex.rebuild(data);
+			}
+			committed = true;
 			updates.commitEvent();
-		} else {
-			updates.discardEvent();
+			return true;
+		} finally {
+			// a failing detector leaves the list and its listeners as they were
+			if (!committed) {
+				updates.discardEvent();
+			}
 		}
-		return changed;
 	}
 
 	/** {@inheritDoc} */
@@ -150,6 +338,9 @@ public class UnderlyingPersistentEventList<E> extends AbstractEventList<E>
 		updates.beginEvent();
 		// do the actual remove
 		E removed = data.remove(index);
+		if (elementIndex != null) {
+			elementIndex.removed(removed);
+		}
 		// fire the event
 		updates.elementDeleted(index, removed);
 		updates.commitEvent();
@@ -179,6 +370,9 @@ public class UnderlyingPersistentEventList<E> extends AbstractEventList<E>
 		}
 		// do the actual clear
 		data.clear();
+		if (elementIndex != null) {
+			elementIndex.rebuild(data);
+		}
 		// fire the event
 		updates.commitEvent();
 	}
@@ -190,6 +384,10 @@ public class UnderlyingPersistentEventList<E> extends AbstractEventList<E>
 		updates.beginEvent();
 		// do the actual set
 		E previous = data.set(index, element);
+		if (elementIndex != null) {
+			elementIndex.removed(previous);
+			elementIndex.added(element, index, data.size());
+		}
 		// fire the event
 		updates.elementUpdated(index, previous);
 		updates.commitEvent();
@@ -211,44 +409,131 @@ public class UnderlyingPersistentEventList<E> extends AbstractEventList<E>
 	/** {@inheritDoc} */
 	@Override
 	public boolean removeAll(Collection<?> collection) {
-		boolean changed = false;
-		updates.beginEvent();
-		for (Iterator i = collection.iterator(); i.hasNext();) {
-			Object value = i.next();
-			int index = -1;
-			while ((index = indexOf(value)) != -1) {
-				E removed = data.remove(index);
-				updates.elementDeleted(index, removed);
-				changed = true;
-			}
-		}
-		updates.commitEvent();
-		return changed;
+		return compact(membersOf(collection), false);
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public boolean retainAll(Collection<?> collection) {
-		boolean changed = false;
+		return compact(membersOf(collection), true);
+	}
+
+	/**
+	 * Returns a collection with fast lookups that contains the same elements as
+	 * the given one.
+	 */
+	private static Collection<?> membersOf(Collection<?> collection) {
+		if (collection instanceof Set) {
+			return collection;
+		}
+		return new HashSet<Object>(collection);
+	}
+
+	/**
+	 * Removes elements from this list in a single pass, moving the survivors
+	 * down in place.
+	 *
+	 * @param members the elements to test against
+	 * @param retain  <code>true</code> to keep only the members,
+	 *                <code>false</code> to remove them
+	 */
+	private boolean compact(Collection<?> members, boolean retain) {
+		if (data.isEmpty())
+			return false;
+
 		updates.beginEvent();
-		int index = 0;
-		while (index < data.size()) {
-			if (collection.contains(data.get(index))) {
-				index++;
+		final int size = data.size();
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			E value = data.get(i);
+			if (members.contains(value) == retain) {
+				if (kept != i) {
+					data.set(kept, value);
+				}
+				kept++;
 			} else {
-				E removed = data.remove(index);
-				updates.elementDeleted(index, removed);
-				changed = true;
+				// consecutive deletes at the same index collapse into one block
+				updates.elementDeleted(kept, value);
+				if (elementIndex != null) {
+					elementIndex.removed(value);
+				}
 			}
 		}
+
+		if (kept == size) {
+			updates.discardEvent();
+			return false;
+		}
+		data.subList(kept, size).clear();
 		updates.commitEvent();
-		return changed;
+		return true;
+	}
+
+	/**
+	 * Maintains an index of the elements of this list, so that
+	 * {@link #containsElement(Object)} and {@link #indexOfElement(Object)}
+	 * answer without scanning.
+	 *
+	 * @param identity <code>true</code> to compare elements by identity, as for
+	 *                 entities; <code>false</code> to compare them with
+	 *                 <code>equals</code>
+	 * @see ElementIndex
+	 */
+	public void useElementIndex(boolean identity) {
+		if (elementIndex != null && elementIndex.isIdentity() == identity)
+			return;
+		elementIndex = new ElementIndex(identity);
+		elementIndex.rebuild(data);
 	}
 
 	/**
-	 * This method does nothing. It is not necessary to dispose a BasicEventList.
+	 * @return <code>true</code> if this list maintains an element index
+	 */
+	public boolean hasElementIndex() {
+		return elementIndex != null;
+	}
+
+	/**
+	 * Like {@link #contains(Object)}, but uses the element index if there is
+	 * one.
+	 */
+	public boolean containsElement(Object element) {
+		if (elementIndex == null)
+			return data.contains(element);
+		return elementIndex.contains(element);
+	}
+
+	/**
+	 * Like {@link #indexOf(Object)}, but uses the element index if there is
+	 * one.
+	 */
+	public int indexOfElement(Object element) {
+		if (elementIndex == null)
+			return data.indexOf(element);
+		return elementIndex.indexOf(element, data);
+	}
+
+	/**
+	 * Indexes the elements added at the given range of positions.
+	 */
+	private void indexAdded(int from, int to) {
+		if (elementIndex == null)
+			return;
+		final boolean appended = to == data.size();
+		for (int i = from; i < to; i++) {
+			elementIndex.added(data.get(i), i, appended ? i + 1 : data.size());
+		}
+	}
+
+	/**
+	 * Releases the elements, without publishing a ListEvent. This list is empty
+	 * afterwards and must not be used anymore.
 	 */
 	@Override
 	public void dispose() {
+		data = new ArrayList<E>(0);
+		if (elementIndex != null) {
+			elementIndex.rebuild(data);
+		}
 	}
 }
@@ -0,0 +1,138 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * @author Nathan Hapke
+ */
+public class AsyncListEventDispatcherTest extends TestCase {
+
+	/**
+	 * Runs the deliveries when told to.
+	 */
+	private static final class ManualExecutor implements Executor {
+		final List<Runnable> tasks = new ArrayList<>();
+
+		@Override
+		public void execute(Runnable task) {
+			tasks.add(task);
+		}
+
+		void runAll() {
+			while (!tasks.isEmpty()) {
+				tasks.remove(0).run();
+			}
+		}
+	}
+
+	/**
+	 * Keeps a copy of the list up to date.
+	 */
+	private static final class MirrorListener implements AsyncListEventListener<String> {
+		final List<String> mirror = new ArrayList<>();
+		final List<ListChangeBatch<String>> batches = new ArrayList<>();
+
+		@Override
+		public void listChanged(ListChangeBatch<String> batch) {
+			batches.add(batch);
+			batch.applyTo(mirror);
+		}
+	}
+
+	@Test
+	public void testDeliversOnExecutor() {
+		PersistentEventList<String> list = new PersistentEventList<>(null, new UnderlyingPersistentEventList<>());
+		list.addAll(Arrays.asList("a", "b"));
+		ManualExecutor executor = new ManualExecutor();
+		MirrorListener listener = new MirrorListener();
+		AsyncListEventDispatcher<String> dispatcher = list.addAsyncListEventListener(listener, executor, 10);
+
+		list.add("c");
+		list.remove("a");
+		list.set(0, "x");
+		assertTrue(listener.batches.isEmpty());
+		assertEquals(4, dispatcher.getQueueSize());
+		assertEquals(1, executor.tasks.size());
+
+		executor.runAll();
+		assertEquals(list, listener.mirror);
+		assertTrue(listener.batches.get(0).isReset());
+		assertEquals(1, listener.batches.get(1).getChangeCount());
+		assertEquals(4, dispatcher.getDeliveredBatches());
+		assertEquals(0, dispatcher.getQueueSize());
+		assertTrue(dispatcher.getMaxLagNanos() >= dispatcher.getLagNanos());
+	}
+
+	@Test
+	public void testCoalescesOnOverflow() {
+		PersistentEventList<String> list = new PersistentEventList<>(null, new UnderlyingPersistentEventList<>());
+		ManualExecutor executor = new ManualExecutor();
+		MirrorListener listener = new MirrorListener();
+		AsyncListEventDispatcher<String> dispatcher = list.addAsyncListEventListener(listener, executor, 3);
+
+		for (int i = 0; i < 10; i++) {
+			list.add(Integer.toString(i));
+		}
+		assertTrue(dispatcher.getQueueSize() <= 3);
+		assertTrue(dispatcher.getCoalescedBatches() > 0);
+
+		executor.runAll();
+		assertEquals(list, listener.mirror);
+		assertTrue(listener.batches.size() <= 3);
+	}
+
+	@Test
+	public void testDispose() {
+		PersistentEventList<String> list = new PersistentEventList<>(null, new UnderlyingPersistentEventList<>());
+		ManualExecutor executor = new ManualExecutor();
+		MirrorListener listener = new MirrorListener();
+		AsyncListEventDispatcher<String> dispatcher = list.addAsyncListEventListener(listener, executor, 10);
+		list.add("a");
+		dispatcher.dispose();
+		list.add("b");
+
+		executor.runAll();
+		assertTrue(listener.batches.isEmpty());
+		assertEquals(0, dispatcher.getQueueSize());
+	}
+
+	@Test
+	public void testThreadPool() throws InterruptedException {
+		PersistentEventList<String> list = new PersistentEventList<>(null, new UnderlyingPersistentEventList<>());
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		final CountDownLatch slow = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(1);
+		final List<String> mirror = new ArrayList<>();
+		list.addAsyncListEventListener(batch -> {
+			try {
+				slow.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			batch.applyTo(mirror);
+			if (mirror.size() == 100) {
+				done.countDown();
+			}
+		}, executor, 4);
+
+		// the writer isn't held up by the blocked listener
+		for (int i = 0; i < 100; i++) {
+			list.add(Integer.toString(i));
+		}
+		slow.countDown();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(list, mirror);
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,67 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.Properties;
+
+import org.junit.Test;
+
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.event.ListEventAssembler;
+import ca.odell.glazedlists.util.concurrent.LockFactory;
+import junit.framework.TestCase;
+
+/**
+ * @author Nathan Hapke
+ */
+public class CategoryEventListFactoryTest extends TestCase {
+
+	@Override
+	protected void tearDown() throws Exception {
+		CategoryEventListFactory.clearCategoryMapping();
+	}
+
+	@Test
+	public void testSameCategorySharesLockAndPublisher() {
+		EventList<Object> first = new CategoryEventListFactory<Object>("Users").createEventList();
+		EventList<Object> second = new CategoryEventListFactory<Object>("Users").createEventList(100);
+
+		assertSame(first.getReadWriteLock(), second.getReadWriteLock());
+		assertSame(first.getPublisher(), second.getPublisher());
+	}
+
+	@Test
+	public void testDifferentCategories() {
+		EventList<Object> users = new CategoryEventListFactory<Object>("Users").createEventList();
+		EventList<Object> roles = new CategoryEventListFactory<Object>("Roles").createEventList();
+
+		assertNotSame(users.getReadWriteLock(), roles.getReadWriteLock());
+		assertNotSame(users.getPublisher(), roles.getPublisher());
+	}
+
+	@Test
+	public void testConflictingRegistration() {
+		new CategoryEventListFactory<Object>("Users");
+		try {
+			new CategoryEventListFactory<Object>("Users", LockFactory.DEFAULT.createReadWriteLock(),
+					ListEventAssembler.createListEventPublisher());
+			fail("Registered a category twice with different locks");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testParameterValues() {
+		PersistentEventListType<Object> type = new PersistentEventListType<>();
+		Properties parameters = new Properties();
+		parameters.setProperty(PersistentEventListType.PROPERTYNAME_EVENTLIST_CATEGORY, "Users");
+		type.setParameterValues(parameters);
+
+		PersistentEventListFactory<Object> factory = type.getListFactory();
+		assertTrue(factory instanceof CategoryEventListFactory);
+		assertEquals("Users", ((CategoryEventListFactory<Object>) factory).getCategory());
+
+		EventList<?> instantiated = (EventList<?>) type.instantiate(-1);
+		EventList<Object> other = new CategoryEventListFactory<Object>("Users").createEventList();
+		assertSame(other.getReadWriteLock(), instantiated.getReadWriteLock());
+	}
+}
@@ -0,0 +1,84 @@
+package ca.odell.glazedlists.hibernate6;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * @author Nathan Hapke
+ */
+public class ChangeJournalTest extends TestCase {
+
+	private UnderlyingPersistentEventList<Object> list;
+	private ChangeJournal journal;
+
+	@Override
+	protected void setUp() throws Exception {
+		list = UnderlyingPersistentEventListTest.createList(100);
+		journal = new ChangeJournal();
+		list.addListEventListener(listChanges -> journal.record(listChanges));
+	}
+
+	@Test
+	public void testClean() {
+		assertTrue(journal.isClean());
+		for (int i = 0; i < list.size(); i++) {
+			assertFalse(journal.isDirty(i));
+		}
+	}
+
+	@Test
+	public void testUpdates() {
+		list.set(10, "a");
+		list.set(11, "b");
+		list.set(50, "c");
+
+		assertFalse(journal.isClean());
+		assertFalse(journal.isDirty(9));
+		assertTrue(journal.isDirty(10));
+		assertTrue(journal.isDirty(11));
+		assertFalse(journal.isDirty(12));
+		assertTrue(journal.isDirty(50));
+		assertFalse(journal.isDirty(99));
+	}
+
+	@Test
+	public void testInsertShiftsTail() {
+		list.set(5, "a");
+		list.add(40, "b");
+
+		assertTrue(journal.isDirty(5));
+		assertFalse(journal.isDirty(39));
+		assertTrue(journal.isDirty(40));
+		assertTrue(journal.isDirty(100));
+	}
+
+	@Test
+	public void testDeleteShiftsTail() {
+		list.remove(70);
+
+		assertFalse(journal.isDirty(69));
+		assertTrue(journal.isDirty(70));
+	}
+
+	@Test
+	public void testManyRangesCollapse() {
+		for (int i = 0; i < 100; i += 2) {
+			list.set(i, "x");
+		}
+		for (int i = 0; i < 100; i += 2) {
+			assertTrue(journal.isDirty(i));
+		}
+		assertFalse(journal.isClean());
+	}
+
+	@Test
+	public void testReset() {
+		list.set(3, "a");
+		list.add(0, "b");
+		journal.reset();
+
+		assertTrue(journal.isClean());
+		assertFalse(journal.isDirty(3));
+	}
+}
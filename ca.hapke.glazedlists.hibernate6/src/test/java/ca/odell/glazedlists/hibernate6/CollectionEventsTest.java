@@ -0,0 +1,74 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import junit.framework.TestCase;
+
+/**
+ * @author Nathan Hapke
+ */
+public class CollectionEventsTest extends TestCase {
+
+	private static final String UPDATE_ALL = "ca.odell.glazedlists.hibernate6.UpdateAll";
+	private static final String LIST_CHANGED = "ca.odell.glazedlists.hibernate6.ListChanged";
+
+	private static List<RecordedEvent> record(Runnable work) throws IOException {
+		Path file = Files.createTempFile("collection-events", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(UPDATE_ALL);
+			recording.enable(LIST_CHANGED);
+			recording.start();
+			work.run();
+			recording.stop();
+			recording.dump(file);
+			return RecordingFile.readAllEvents(file);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testUpdateAll() throws IOException {
+		UnderlyingPersistentEventList<String> delegate = new UnderlyingPersistentEventList<>();
+		delegate.addAll(Arrays.asList("a", "b", "c"));
+		PersistentEventList<String> list = new PersistentEventList<>(null, delegate);
+		list.addListEventListener(listChanges -> {
+		});
+
+		List<RecordedEvent> events = record(() -> list.updateAll(Arrays.asList("a", "x", "c", "d")));
+		RecordedEvent updateAll = null;
+		for (RecordedEvent event : events) {
+			if (event.getEventType().getName().equals(UPDATE_ALL)) {
+				updateAll = event;
+			}
+		}
+		assertNotNull(updateAll);
+		assertEquals(3, updateAll.getInt("oldSize"));
+		assertEquals(4, updateAll.getInt("size"));
+		assertEquals(2, updateAll.getInt("changes"));
+		assertTrue(updateAll.getBoolean("delegate"));
+	}
+
+	@Test
+	public void testCountChanges() {
+		UnderlyingPersistentEventList<String> list = new UnderlyingPersistentEventList<>();
+		list.addAll(Arrays.asList("a", "b", "c", "d"));
+		int[] counts = new int[2];
+		list.addListEventListener(listChanges -> {
+			counts[0] = CollectionEvents.countChanges(listChanges);
+			counts[1] = CollectionEvents.countBlocks(listChanges);
+		});
+		list.updateAll(Arrays.asList("x", "b", "y", "z", "d", "e"));
+		assertEquals(4, counts[0]);
+		assertTrue(counts[1] >= 2);
+	}
+}
@@ -0,0 +1,95 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * @author Nathan Hapke
+ */
+public class CollectionStatisticsTest extends TestCase {
+
+	@Override
+	protected void tearDown() throws Exception {
+		CollectionStatistics.disable();
+	}
+
+	private static PersistentEventList<String> createList() {
+		return new PersistentEventList<>(null, new UnderlyingPersistentEventList<String>());
+	}
+
+	@Test
+	public void testDisabledByDefault() {
+		assertNull(CollectionStatistics.current());
+		PersistentEventList<String> list = createList();
+		list.addListEventListener(listChanges -> {
+		});
+		assertEquals(0, list.getListenerCount());
+	}
+
+	@Test
+	public void testRegistration() throws Exception {
+		CollectionStatistics.enable(1);
+		ObjectName name = new ObjectName(CollectionStatistics.OBJECT_NAME);
+		assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+		assertEquals(Integer.valueOf(1), ManagementFactory.getPlatformMBeanServer().getAttribute(name, "SampleRate"));
+
+		CollectionStatistics.disable();
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+	}
+
+	@Test
+	public void testCounts() {
+		CollectionStatistics statistics = CollectionStatistics.enable(1);
+		PersistentEventList<String> first = createList();
+		PersistentEventList<String> second = new PersistentEventList<>(null, PersistentEventListFactory.DEFAULT);
+		first.addListEventListener(listChanges -> {
+		});
+
+		Map<String, Integer> roles = statistics.getCollectionsPerRole();
+		assertEquals(2, statistics.getLiveCollections());
+		assertEquals(Integer.valueOf(2), roles.values().iterator().next());
+		assertEquals(1, statistics.getListeners());
+		// a wrapped list is initialized, a new one isn't
+		Map<Long, Integer> sizes = statistics.getSizeHistogram();
+		assertEquals(Integer.valueOf(1), sizes.get(Long.valueOf(0)));
+		assertEquals(Integer.valueOf(1), sizes.get(Long.valueOf(-1)));
+
+		first.updateAll(Arrays.asList("a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k"));
+		assertEquals(Integer.valueOf(1), statistics.getSizeHistogram().get(Long.valueOf(10)));
+		assertEquals(1, statistics.getEventsPublished());
+		assertEquals(1.0, statistics.getUpdateAllChangeRatio());
+		assertNotNull(second);
+	}
+
+	@Test
+	public void testUpdateAll() {
+		CollectionStatistics statistics = CollectionStatistics.enable(1);
+		PersistentEventList<String> list = createList();
+		list.updateAll(Arrays.asList("a", "b", "c", "d"));
+		list.updateAll(Arrays.asList("a", "x", "c", "d"));
+		assertEquals(2, statistics.getUpdateAllCount());
+		assertEquals(2, statistics.getEventsPublished());
+		assertEquals(5.0 / 8, statistics.getUpdateAllChangeRatio());
+
+		statistics.reset();
+		assertEquals(0, statistics.getUpdateAllCount());
+		assertEquals(0.0, statistics.getUpdateAllChangeRatio());
+	}
+
+	@Test
+	public void testSampling() {
+		CollectionStatistics statistics = CollectionStatistics.enable(3);
+		PersistentEventList<?>[] lists = new PersistentEventList<?>[9];
+		for (int i = 0; i < lists.length; i++) {
+			lists[i] = createList();
+		}
+		assertEquals(3, statistics.getLiveCollections());
+	}
+}
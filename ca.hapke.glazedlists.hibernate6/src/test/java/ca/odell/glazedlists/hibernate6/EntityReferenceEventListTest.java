@@ -0,0 +1,255 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ca.odell.glazedlists.hibernate6.UnderlyingPersistentEventListTest.MirrorListener;
+import junit.framework.TestCase;
+
+/**
+ * @author Nathan Hapke
+ */
+public class EntityReferenceEventListTest extends TestCase {
+
+	private static final class Item {
+		final long id;
+
+		Item(long id) {
+			this.id = id;
+		}
+
+		@Override
+		public String toString() {
+			return "Item#" + id;
+		}
+	}
+
+	/**
+	 * Stands in for a session, which manages one instance per identifier.
+	 */
+	private static final class FakeResolver implements EntityResolver<Item> {
+		private static final long serialVersionUID = 0L;
+
+		final Map<Long, Item> managed = new HashMap<>();
+		int resolves = 0;
+
+		Item manage(long id) {
+			Item item = new Item(id);
+			managed.put(Long.valueOf(id), item);
+			return item;
+		}
+
+		@Override
+		public Item resolve(long id) {
+			resolves++;
+			Item item = managed.get(Long.valueOf(id));
+			if (item == null) {
+				throw new IllegalStateException("No entity #" + id);
+			}
+			return item;
+		}
+
+		@Override
+		public Long identify(Object entity) {
+			if (entity instanceof Item && managed.get(Long.valueOf(((Item) entity).id)) == entity) {
+				return Long.valueOf(((Item) entity).id);
+			}
+			return null;
+		}
+	}
+
+	private static EntityReferenceEventList<Item> createList(FakeResolver resolver, int cacheSize, int size) {
+		EntityReferenceEventList<Item> list = new EntityReferenceEventList<>(resolver, cacheSize, 10, null, null);
+		List<Item> loaded = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			loaded.add(resolver.manage(i));
+		}
+		list.hydrate(loaded);
+		return list;
+	}
+
+	@Test
+	public void testResolvesOnAccess() {
+		FakeResolver resolver = new FakeResolver();
+		EntityReferenceEventList<Item> list = createList(resolver, 100, 1000);
+		assertEquals(1000, list.size());
+		assertEquals(0, resolver.resolves);
+
+		assertSame(resolver.managed.get(500L), list.get(500));
+		assertEquals(Long.valueOf(500), list.getId(500));
+		int resolves = resolver.resolves;
+		assertTrue(resolves > 1);
+
+		// the following elements were resolved ahead, and are cached
+		for (int i = 500; i < 500 + resolves; i++) {
+			assertSame(resolver.managed.get((long) i), list.get(i));
+		}
+		assertEquals(resolves, resolver.resolves);
+	}
+
+	@Test
+	public void testCacheIsBounded() {
+		FakeResolver resolver = new FakeResolver();
+		EntityReferenceEventList<Item> list = createList(resolver, 10, 100);
+		for (int i = 0; i < 100; i++) {
+			list.get(i);
+		}
+		int resolves = resolver.resolves;
+		assertEquals(100, resolves);
+
+		// the last elements are cached, the first ones were evicted
+		list.get(99);
+		assertEquals(resolves, resolver.resolves);
+		list.get(0);
+		assertTrue(resolver.resolves > resolves);
+	}
+
+	@Test
+	public void testLookupByIdentifier() {
+		FakeResolver resolver = new FakeResolver();
+		EntityReferenceEventList<Item> list = createList(resolver, 10, 100);
+		assertEquals(42, list.indexOf(resolver.managed.get(42L)));
+		assertEquals(42, list.lastIndexOf(resolver.managed.get(42L)));
+		assertFalse(list.contains(new Item(42)));
+		assertEquals(0, resolver.resolves);
+	}
+
+	@Test
+	public void testUnmanagedElementsArePinned() {
+		FakeResolver resolver = new FakeResolver();
+		EntityReferenceEventList<Item> list = createList(resolver, 10, 5);
+		Item unsaved = new Item(100);
+		list.add(2, unsaved);
+		list.add(null);
+		assertNull(list.getId(2));
+		assertSame(unsaved, list.get(2));
+		assertNull(list.get(6));
+		assertEquals(6, list.indexOf(null));
+		assertEquals(2, list.indexOf(unsaved));
+
+		// once it is saved, the snapshot stores it as its identifier
+		resolver.managed.put(100L, unsaved);
+		List<?> snapshot = (List<?>) list.snapshot();
+		assertEquals(Long.valueOf(100), list.getId(2));
+		assertSame(unsaved, snapshot.get(2));
+		assertNull(snapshot.get(6));
+		assertEquals(7, snapshot.size());
+	}
+
+	@Test
+	public void testHoldAllKeepsElementsWithoutSession() {
+		FakeResolver resolver = new FakeResolver();
+		EntityReferenceEventList<Item> list = createList(resolver, 5, 20);
+		List<Item> items = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			items.add(resolver.managed.get((long) i));
+		}
+		list.get(3);
+		list.holdAll();
+
+		// the session is closed: nothing can be resolved or identified
+		Map<Long, Item> managed = new HashMap<>(resolver.managed);
+		resolver.managed.clear();
+		assertEquals(items, new ArrayList<>(list));
+		assertSame(items.get(15), list.get(15));
+		assertEquals(12, list.indexOf(items.get(12)));
+		assertTrue(list.contains(items.get(19)));
+		assertTrue(list.remove(items.get(7)));
+		assertEquals(19, list.size());
+		assertEquals(7, list.indexOf(items.get(8)));
+
+		// reattached, the managed elements are stored as identifiers again
+		resolver.managed.putAll(managed);
+		list.snapshot();
+		assertEquals(Long.valueOf(8), list.getId(7));
+		assertSame(items.get(8), list.get(7));
+	}
+
+	@Test
+	public void testUpdateAllPublishesDifferences() {
+		FakeResolver resolver = new FakeResolver();
+		EntityReferenceEventList<Item> list = createList(resolver, 10, 50);
+		MirrorListener<Item> listener = new MirrorListener<>(list);
+		list.addListEventListener(listener);
+		resolver.resolves = 0;
+
+		List<Item> input = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			input.add(resolver.managed.get((long) i));
+		}
+		input.remove(10);
+		input.add(20, resolver.manage(99));
+		assertTrue(list.updateAll(input));
+		assertFalse(list.updateAll(input));
+
+		assertEquals(1, listener.events);
+		assertEquals(1, listener.inserts);
+		assertEquals(1, listener.deletes);
+		assertEquals(input, listener.mirror);
+		assertEquals(input, new ArrayList<>(list));
+	}
+
+	@Test
+	public void testRandomOperations() {
+		Random random = new Random(7);
+		FakeResolver resolver = new FakeResolver();
+		EntityReferenceEventList<Item> list = createList(resolver, 4, 0);
+		List<Item> expected = new ArrayList<>();
+		MirrorListener<Item> listener = new MirrorListener<>(list);
+		list.addListEventListener(listener);
+		Item[] items = new Item[30];
+		for (int i = 0; i < items.length; i++) {
+			// every third item isn't managed
+			items[i] = (i % 3 == 0) ? new Item(i) : resolver.manage(i);
+		}
+
+		for (int i = 0; i < 2000; i++) {
+			int size = expected.size();
+			Item value = items[random.nextInt(items.length)];
+			switch (random.nextInt(7)) {
+			case 0:
+			case 1:
+				int index = random.nextInt(size + 1);
+				list.add(index, value);
+				expected.add(index, value);
+				break;
+			case 2:
+				if (size > 0) {
+					index = random.nextInt(size);
+					assertSame(expected.remove(index), list.remove(index));
+				}
+				break;
+			case 3:
+				if (size > 0) {
+					index = random.nextInt(size);
+					assertSame(expected.set(index, value), list.set(index, value));
+				}
+				break;
+			case 4:
+				List<Item> removed = Arrays.asList(value, items[random.nextInt(items.length)]);
+				assertEquals(expected.removeAll(removed), list.removeAll(removed));
+				break;
+			case 5:
+				List<Item> input = new ArrayList<>(expected);
+				if (!input.isEmpty()) {
+					input.remove(random.nextInt(input.size()));
+				}
+				input.add(random.nextInt(input.size() + 1), value);
+				list.updateAll(input);
+				expected = input;
+				break;
+			case 6:
+				assertEquals(expected.indexOf(value), list.indexOf(value));
+				break;
+			}
+			assertEquals(expected, new ArrayList<>(list));
+		}
+		assertEquals(expected, listener.mirror);
+	}
+}
@@ -0,0 +1,151 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiPredicate;
+
+import org.hibernate.HibernateException;
+import org.junit.Test;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.hibernate6.UnderlyingPersistentEventListTest.MirrorListener;
+import junit.framework.TestCase;
+
+/**
+ * @author Nathan Hapke
+ */
+public class EquivalencesTest extends TestCase {
+
+	/**
+	 * Values that are the same if they have the same first letter.
+	 */
+	public static final class SameLetter implements BiPredicate<String, String> {
+		@Override
+		public boolean test(String oldValue, String newValue) {
+			return oldValue.charAt(0) == newValue.charAt(0);
+		}
+	}
+
+	/**
+	 * @return distinct instances of the same Strings
+	 */
+	private static List<String> copies(List<String> values) {
+		List<String> copies = new ArrayList<>();
+		for (String value : values) {
+			copies.add(new String(value));
+		}
+		return copies;
+	}
+
+	@Test
+	public void testIdentityReplacesEqualValues() {
+		UnderlyingPersistentEventList<String> list = new UnderlyingPersistentEventList<>();
+		list.addAll(Arrays.asList("a", "b", "c"));
+		MirrorListener<String> listener = new MirrorListener<>(list);
+		list.addListEventListener(listener);
+
+		assertTrue(list.updateAll(copies(list)));
+		assertEquals(3, listener.updates);
+	}
+
+	@Test
+	public void testEqualsKeepsEqualValues() {
+		UnderlyingPersistentEventList<String> list = new UnderlyingPersistentEventList<>();
+		list.addAll(Arrays.asList("a", "b", "c"));
+		PersistentEventList<String> collection = new PersistentEventList<>(null, list);
+		collection.useEquivalence(Equivalences.EQUALS);
+		MirrorListener<String> listener = new MirrorListener<>(collection);
+		collection.addListEventListener(listener);
+		String b = list.get(1);
+
+		assertFalse(collection.updateAll(copies(list)));
+		assertEquals(0, listener.events);
+
+		assertTrue(collection.updateAll(Arrays.asList("a", new String("b"), "d")));
+		assertEquals(1, listener.updates);
+		assertEquals(Arrays.asList("a", "b", "d"), listener.mirror);
+		assertSame(b, list.get(1));
+	}
+
+	@Test
+	public void testFallbackKeepsEquivalentValues() {
+		BasicEventList<String> delegate = new BasicEventList<>();
+		delegate.addAll(Arrays.asList("a1", "b1", "c1"));
+		PersistentEventList<String> collection = new PersistentEventList<>(null, delegate);
+		collection.useEquivalence(new SameLetter());
+		MirrorListener<String> listener = new MirrorListener<>(collection);
+		collection.addListEventListener(listener);
+
+		assertFalse(collection.updateAll(Arrays.asList("a2", "b2", "c2")));
+		assertEquals(0, listener.events);
+		assertEquals(Arrays.asList("a1", "b1", "c1"), delegate);
+
+		assertTrue(collection.updateAll(Arrays.asList("a2", "b2", "d2")));
+		assertEquals(1, listener.events);
+		assertEquals(Arrays.asList("a1", "b1", "d2"), delegate);
+	}
+
+	@Test
+	public void testEquivalenceDetectsChangesByKey() {
+		UnderlyingPersistentEventList<String> list = new UnderlyingPersistentEventList<>();
+		list.addAll(Arrays.asList("a1", "b1"));
+		PersistentEventList<String> collection = new PersistentEventList<>(null, list);
+		collection.useEquivalence(new SameLetter());
+
+		assertFalse(collection.updateAllByKey(Arrays.asList("a2", "b2"), value -> value.substring(0, 1)));
+		assertEquals(Arrays.asList("a1", "b1"), list);
+	}
+
+	@Test
+	public void testThrowingEquivalenceLeavesNoEvent() {
+		final List<String> old = Arrays.asList("a", "b", "c");
+		final List<String> input = Arrays.asList("a", "x", "c");
+		// count what the diff asks, to fail on the first question asked while
+		// the elements are replaced
+		final int[] calls = { 0 };
+		ListDiff.compute(old, input, (oldValue, newValue) -> {
+			calls[0]++;
+			return false;
+		});
+		final int diffCalls = calls[0];
+		calls[0] = 0;
+
+		UnderlyingPersistentEventList<String> list = new UnderlyingPersistentEventList<>();
+		list.addAll(old);
+		MirrorListener<String> listener = new MirrorListener<>(list);
+		list.addListEventListener(listener);
+		try {
+			list.updateAll(input, (oldValue, newValue) -> {
+				if (++calls[0] > diffCalls) {
+					throw new IllegalStateException("Failing equivalence");
+				}
+				return false;
+			});
+			fail("The equivalence wasn't asked while replacing");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertEquals(old, list);
+		assertEquals(0, listener.events);
+
+		// no event was left open
+		list.add("d");
+		assertEquals(1, listener.events);
+		assertEquals(list, listener.mirror);
+	}
+
+	@Test
+	public void testForName() {
+		assertSame(Equivalences.IDENTITY, Equivalences.forName("identity"));
+		assertSame(Equivalences.EQUALS, Equivalences.forName("equals"));
+		assertNull(Equivalences.forName("entityId"));
+		assertTrue(Equivalences.<String>forName(SameLetter.class.getName()) instanceof SameLetter);
+		try {
+			Equivalences.forName("no.such.Equivalence");
+			fail();
+		} catch (HibernateException expected) {
+			// expected
+		}
+	}
+}
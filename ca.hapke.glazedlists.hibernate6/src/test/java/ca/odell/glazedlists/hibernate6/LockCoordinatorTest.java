@@ -0,0 +1,127 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import ca.odell.glazedlists.util.concurrent.LockFactory;
+import ca.odell.glazedlists.util.concurrent.ReadWriteLock;
+import junit.framework.TestCase;
+
+/**
+ * @author Nathan Hapke
+ */
+public class LockCoordinatorTest extends TestCase {
+
+	/**
+	 * @return true if another thread can take the write lock right now
+	 */
+	private static boolean isFree(ReadWriteLock lock) throws InterruptedException {
+		AtomicReference<Boolean> result = new AtomicReference<>();
+		Thread thread = new Thread(() -> {
+			boolean locked = lock.writeLock().tryLock();
+			if (locked) {
+				lock.writeLock().unlock();
+			}
+			result.set(Boolean.valueOf(locked));
+		});
+		thread.start();
+		thread.join();
+		return result.get().booleanValue();
+	}
+
+	@Test
+	public void testReleasesBoth() throws InterruptedException {
+		ReadWriteLock target = LockFactory.DEFAULT.createReadWriteLock();
+		ReadWriteLock source = LockFactory.DEFAULT.createReadWriteLock();
+		try (LockCoordinator locks = LockCoordinator.writeAndRead(target, source)) {
+			assertFalse(isFree(target));
+			assertFalse(isFree(source));
+			assertTrue(locks.getWaitNanos() >= 0);
+		}
+		assertTrue(isFree(target));
+		assertTrue(isFree(source));
+	}
+
+	@Test
+	public void testContended() throws InterruptedException {
+		ReadWriteLock target = LockFactory.DEFAULT.createReadWriteLock();
+		ReadWriteLock source = LockFactory.DEFAULT.createReadWriteLock();
+		try (LockCoordinator locks = LockCoordinator.writeAndRead(target, source)) {
+			assertFalse(locks.isContended());
+		}
+
+		CountDownLatch locked = new CountDownLatch(1);
+		Thread holder = new Thread(() -> {
+			target.writeLock().lock();
+			locked.countDown();
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				// release early
+			} finally {
+				target.writeLock().unlock();
+			}
+		});
+		holder.start();
+		locked.await();
+		try (LockCoordinator locks = LockCoordinator.writeAndRead(target, source)) {
+			assertTrue(locks.isContended());
+		}
+		holder.join();
+	}
+
+	@Test
+	public void testSharedLock() throws InterruptedException {
+		ReadWriteLock shared = LockFactory.DEFAULT.createReadWriteLock();
+		try (LockCoordinator locks = LockCoordinator.writeAndRead(shared, shared)) {
+			assertFalse(isFree(shared));
+		}
+		assertTrue(isFree(shared));
+	}
+
+	@Test
+	public void testReleasesOnException() throws InterruptedException {
+		ReadWriteLock target = LockFactory.DEFAULT.createReadWriteLock();
+		ReadWriteLock source = LockFactory.DEFAULT.createReadWriteLock();
+		try (LockCoordinator locks = LockCoordinator.writeAndRead(target, source)) {
+			throw new IllegalStateException("merge failed");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertTrue(isFree(target));
+		assertTrue(isFree(source));
+	}
+
+	@Test
+	public void testOppositeDirections() throws InterruptedException {
+		ReadWriteLock a = LockFactory.DEFAULT.createReadWriteLock();
+		ReadWriteLock b = LockFactory.DEFAULT.createReadWriteLock();
+		CountDownLatch done = new CountDownLatch(2);
+		Runnable aToB = () -> {
+			for (int i = 0; i < 10000; i++) {
+				try (LockCoordinator locks = LockCoordinator.writeAndRead(b, a)) {
+					Thread.yield();
+				}
+			}
+			done.countDown();
+		};
+		Runnable bToA = () -> {
+			for (int i = 0; i < 10000; i++) {
+				try (LockCoordinator locks = LockCoordinator.writeAndRead(a, b)) {
+					Thread.yield();
+				}
+			}
+			done.countDown();
+		};
+		Thread first = new Thread(aToB);
+		Thread second = new Thread(bToA);
+		first.setDaemon(true);
+		second.setDaemon(true);
+		first.start();
+		second.start();
+		assertTrue("deadlocked", done.await(30, TimeUnit.SECONDS));
+	}
+}
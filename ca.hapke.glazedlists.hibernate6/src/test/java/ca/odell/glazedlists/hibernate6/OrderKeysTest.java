@@ -0,0 +1,124 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * @author Nathan Hapke
+ */
+public class OrderKeysTest extends TestCase {
+
+	private UnderlyingPersistentEventList<Object> list;
+	private OrderKeys keys;
+
+	@Override
+	protected void setUp() throws Exception {
+		list = UnderlyingPersistentEventListTest.createList(100);
+		keys = new OrderKeys(16);
+		keys.spread(list.size());
+		list.addListEventListener(listChanges -> keys.record(listChanges));
+	}
+
+	private void assertAscending() {
+		assertEquals(list.size(), keys.size());
+		int previous = -1;
+		for (int i = 0; i < keys.size(); i++) {
+			assertTrue("key " + i + " not ascending", keys.get(i) > previous);
+			previous = keys.get(i);
+		}
+	}
+
+	private int countChanged(int[] before, int[] after) {
+		int changed = 0;
+		for (int key : after) {
+			if (Arrays.binarySearch(before, key) < 0) {
+				changed++;
+			}
+		}
+		return changed;
+	}
+
+	@Test
+	public void testHeadInsertKeepsOtherKeys() {
+		int[] before = keys.toArray();
+		list.add(0, "a");
+
+		assertAscending();
+		assertEquals(1, countChanged(before, keys.toArray()));
+	}
+
+	@Test
+	public void testHeadDeleteKeepsOtherKeys() {
+		int[] before = keys.toArray();
+		list.remove(0);
+
+		assertAscending();
+		assertEquals(0, countChanged(before, keys.toArray()));
+	}
+
+	@Test
+	public void testRepeatedInsertRebalancesLocally() {
+		int changed = 0;
+		for (int i = 0; i < 40; i++) {
+			int[] before = keys.toArray();
+			list.add(50, "x" + i);
+			assertAscending();
+			changed += countChanged(before, keys.toArray());
+		}
+		// amortized, far fewer writes than renumbering the tail each time
+		assertTrue("changed " + changed, changed < 40 * 5);
+	}
+
+	@Test
+	public void testQueueKeepsKeysBounded() {
+		for (int i = 0; i < 10000; i++) {
+			list.add("q" + i);
+			list.remove(0);
+			assertAscending();
+		}
+		assertTrue("largest key " + keys.get(keys.size() - 1), keys.get(keys.size() - 1) <= 4 * 16 * 101);
+	}
+
+	@Test
+	public void testLoad() {
+		List<Object> loaded = new ArrayList<>(Arrays.asList(null, "a", null, null, "b", "c"));
+		List<Object> elements = keys.load(loaded);
+
+		assertEquals(Arrays.asList("a", "b", "c"), elements);
+		assertEquals(1, keys.get(0));
+		assertEquals(4, keys.get(1));
+		assertEquals(5, keys.get(2));
+	}
+
+	@Test
+	public void testSnapshot() {
+		keys.takeSnapshot();
+		assertTrue(keys.equalsSnapshot());
+
+		int key = keys.get(10);
+		list.remove(10);
+		assertFalse(keys.equalsSnapshot());
+		assertTrue(keys.indexOf(key) < 0);
+		assertEquals(10, keys.snapshotIndexOf(key));
+	}
+
+	@Test
+	public void testRandom() {
+		Random random = new Random(7);
+		for (int i = 0; i < 5000; i++) {
+			if (list.isEmpty() || random.nextInt(3) > 0) {
+				list.add(random.nextInt(list.size() + 1), "r" + i);
+			} else {
+				list.remove(random.nextInt(list.size()));
+			}
+		}
+		assertAscending();
+		assertTrue(keys.get(0) >= 0);
+	}
+}
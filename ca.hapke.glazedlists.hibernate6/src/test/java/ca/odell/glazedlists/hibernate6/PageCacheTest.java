@@ -0,0 +1,85 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * @author Nathan Hapke
+ */
+public class PageCacheTest extends TestCase {
+
+	/**
+	 * Returns the positions as elements, and records the pages read.
+	 */
+	private static final class CountingLoader implements PageCache.PageLoader {
+		final List<String> loads = new ArrayList<>();
+
+		@Override
+		public Object[] load(int first, int count) {
+			loads.add(first + "+" + count);
+			Object[] page = new Object[count];
+			for (int i = 0; i < count; i++) {
+				page[i] = Integer.valueOf(first + i);
+			}
+			return page;
+		}
+	}
+
+	@Test
+	public void testReadsWholePages() {
+		PageCache pages = new PageCache(10, 4);
+		CountingLoader loader = new CountingLoader();
+		for (int i = 0; i < 25; i++) {
+			assertEquals(Integer.valueOf(i), pages.get(i, 25, loader));
+		}
+		// the last page is only as long as the rest of the list
+		assertEquals("[0+10, 10+10, 20+5]", loader.loads.toString());
+		assertEquals(3, pages.getCachedPages());
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsedPage() {
+		PageCache pages = new PageCache(10, 2);
+		CountingLoader loader = new CountingLoader();
+		pages.get(0, 100, loader);
+		pages.get(10, 100, loader);
+		pages.get(5, 100, loader);
+		pages.get(20, 100, loader);
+		assertEquals(3, pages.getLoads());
+		assertEquals(2, pages.getCachedPages());
+
+		// page 1 was evicted, page 0 was used more recently
+		pages.get(0, 100, loader);
+		assertEquals(3, pages.getLoads());
+		pages.get(10, 100, loader);
+		assertEquals(4, pages.getLoads());
+	}
+
+	@Test
+	public void testClear() {
+		PageCache pages = new PageCache(10, 2);
+		CountingLoader loader = new CountingLoader();
+		pages.get(0, 100, loader);
+		pages.clear();
+		assertEquals(0, pages.getCachedPages());
+		pages.get(0, 100, loader);
+		assertEquals(2, pages.getLoads());
+	}
+
+	@Test
+	public void testSizeChangeReleasesPages() {
+		PageCache pages = new PageCache(10, 4);
+		CountingLoader loader = new CountingLoader();
+		pages.get(20, 25, loader);
+		pages.get(0, 25, loader);
+
+		// the short last page is read again, and so is any other page
+		assertEquals(Integer.valueOf(25), pages.get(25, 26, loader));
+		assertEquals(Integer.valueOf(0), pages.get(0, 26, loader));
+		assertEquals("[20+5, 0+10, 20+6, 0+10]", loader.loads.toString());
+	}
+}
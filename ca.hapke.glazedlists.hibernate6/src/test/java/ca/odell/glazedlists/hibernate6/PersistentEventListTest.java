@@ -0,0 +1,477 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hibernate.SessionEventListener;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionEventListenerManager;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.type.Type;
+import org.junit.Test;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.event.ListEvent;
+import ca.odell.glazedlists.event.ListEventListener;
+import ca.odell.glazedlists.hibernate6.UnderlyingPersistentEventListTest.MirrorListener;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import junit.framework.TestCase;
+
+/**
+ * @author Nathan Hapke
+ */
+public class PersistentEventListTest extends TestCase {
+
+	/**
+	 * Remembers the source list of each event it receives.
+	 */
+	private static final class SourceListener implements ListEventListener<String> {
+		final List<EventList<String>> sources = new ArrayList<>();
+
+		@Override
+		public void listChanged(ListEvent<String> listChanges) {
+			sources.add(listChanges.getSourceList());
+		}
+	}
+
+	@Test
+	public void testSharedAssembler() {
+		UnderlyingPersistentEventList<String> delegate = new UnderlyingPersistentEventList<>();
+		PersistentEventList<String> list = new PersistentEventList<>(null, delegate);
+		SourceListener listener = new SourceListener();
+		list.addListEventListener(listener);
+		delegate.add("a");
+
+		assertEquals(1, listener.sources.size());
+		assertSame(list, listener.sources.get(0));
+	}
+
+	@Test
+	public void testDelegateWithListeners() {
+		UnderlyingPersistentEventList<String> delegate = new UnderlyingPersistentEventList<>();
+		SourceListener delegateListener = new SourceListener();
+		delegate.addListEventListener(delegateListener);
+
+		PersistentEventList<String> list = new PersistentEventList<>(null, delegate);
+		SourceListener listener = new SourceListener();
+		list.addListEventListener(listener);
+		delegate.add("a");
+
+		assertEquals(1, delegateListener.sources.size());
+		assertSame(delegate, delegateListener.sources.get(0));
+		assertEquals(1, listener.sources.size());
+		assertSame(list, listener.sources.get(0));
+	}
+
+	@Test
+	public void testForwardsOtherEventLists() {
+		BasicEventList<String> delegate = new BasicEventList<>();
+		PersistentEventList<String> list = new PersistentEventList<>(null, delegate);
+		SourceListener listener = new SourceListener();
+		list.addListEventListener(listener);
+		delegate.add("a");
+
+		assertEquals(1, listener.sources.size());
+		assertSame(list, listener.sources.get(0));
+	}
+
+	@Test
+	public void testUpdateAllMarksDirty() {
+		UnderlyingPersistentEventList<String> delegate = new UnderlyingPersistentEventList<>();
+		delegate.addAll(Arrays.asList("a", "b"));
+		PersistentEventList<String> list = new PersistentEventList<>(null, delegate);
+		assertFalse(list.isDirty());
+
+		// nothing to write
+		assertFalse(list.updateAll(Arrays.asList("a", "b")));
+		assertFalse(list.isDirty());
+
+		assertTrue(list.updateAll(Arrays.asList("b", "c")));
+		assertTrue(list.isDirty());
+		assertTrue(list.isRecordedChange(1));
+	}
+
+	@Test
+	public void testUpdateAllFallbackIsOneEvent() {
+		BasicEventList<String> delegate = new BasicEventList<>();
+		delegate.addAll(Arrays.asList("a", "b", "c", "d", "e"));
+		PersistentEventList<String> list = new PersistentEventList<>(null, delegate);
+		SourceListener listener = new SourceListener();
+		list.addListEventListener(listener);
+
+		List<String> input = Arrays.asList("a", "x", "c", "e", "f", "g");
+		assertTrue(list.updateAll(input));
+		assertEquals(input, delegate);
+		assertEquals(1, listener.sources.size());
+
+		assertFalse(list.updateAll(new ArrayList<>(input)));
+		assertEquals(1, listener.sources.size());
+	}
+
+	@Test
+	public void testUpdateAllByKey() {
+		List<String> initial = Arrays.asList("a1", "b1", "c1", "d1");
+		List<String> input = Arrays.asList("a1", "b1", "c2", "e1");
+		List<EventList<String>> delegates = new ArrayList<>();
+		delegates.add(new UnderlyingPersistentEventList<>());
+		delegates.add(new BasicEventList<>());
+		for (EventList<String> delegate : delegates) {
+			delegate.addAll(initial);
+			PersistentEventList<String> list = new PersistentEventList<>(null, delegate);
+			MirrorListener<String> listener = new MirrorListener<>(list);
+			list.addListEventListener(listener);
+
+			// keyed by the letter: c changed, d is gone, e is new
+			assertTrue(list.updateAllByKey(input, value -> value.substring(0, 1)));
+			assertEquals(input, delegate);
+			assertEquals(input, listener.mirror);
+			assertEquals(1, listener.events);
+			assertEquals(1, listener.updates);
+			assertEquals(1, listener.deletes);
+			assertEquals(1, listener.inserts);
+			assertFalse(list.updateAllByKey(new ArrayList<>(input), value -> value.substring(0, 1)));
+			assertEquals(1, listener.events);
+		}
+	}
+
+	/**
+	 * @return a persister of a collection of immutable values, which are
+	 *         cached as they are
+	 */
+	private CollectionPersister valuePersister() {
+		Type type = (Type) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Type.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "assemble":
+					case "deepCopy":
+						return args[0];
+					case "isMutable":
+					case "isEntityType":
+						return Boolean.FALSE;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+		return (CollectionPersister) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { CollectionPersister.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getElementType":
+						return type;
+					case "getFactory":
+						return null;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	@Test
+	public void testInitializeFromCache() {
+		UnderlyingPersistentEventList<String> delegate = new UnderlyingPersistentEventList<>();
+		PersistentEventList<String> list = new PersistentEventList<>(null, delegate);
+		CollectionPersister persister = valuePersister();
+		list.beginRead();
+		list.initializeFromCache(persister, new Serializable[] { "a", "b" }, null);
+		list.endRead();
+		list.setSnapshot(null, "role", list.getSnapshot(persister));
+		assertEquals(Arrays.asList("a", "b"), delegate);
+
+		// the delegate is still connected, so changes are published and flushed
+		SourceListener listener = new SourceListener();
+		list.addListEventListener(listener);
+		list.add("c");
+		assertEquals(1, listener.sources.size());
+		assertEquals(3, delegate.size());
+		assertFalse(list.isRecordedChange(0));
+		assertTrue(list.isRecordedChange(2));
+	}
+
+	@Test
+	public void testObserver() {
+		final int[] calls = new int[3];
+		PersistentEventList<String> list = new PersistentEventList<>(null, new UnderlyingPersistentEventList<>());
+		list.useObserver(new PersistentEventListObserver() {
+			@Override
+			public void updatedAll(PersistentEventList<?> updated, int oldSize, int newSize, boolean changed,
+					boolean delegate, long nanos) {
+				calls[0]++;
+				calls[1] = oldSize;
+				calls[2] = newSize;
+				assertTrue(delegate);
+				assertTrue(nanos >= 0);
+			}
+		});
+		list.updateAll(Arrays.asList("a", "b"));
+		assertEquals(1, calls[0]);
+		assertEquals(0, calls[1]);
+		assertEquals(2, calls[2]);
+	}
+
+	@Test
+	public void testDisposeShared() {
+		UnderlyingPersistentEventList<String> delegate = new UnderlyingPersistentEventList<>();
+		PersistentEventList<String> list = new PersistentEventList<>(null, delegate);
+		SourceListener listener = new SourceListener();
+		list.addListEventListener(listener);
+
+		list.dispose();
+		delegate.add("a");
+		assertTrue(listener.sources.isEmpty());
+		assertEquals(1, delegate.size());
+		// the recorder is gone too, so the delegate has no listeners left
+		assertNotNull(delegate.publishAs(delegate));
+		// still flushed when reattached, by comparing every element
+		assertTrue(list.isRecordedChange(0));
+
+		// a second dispose does nothing
+		list.dispose();
+	}
+
+	@Test
+	public void testDisposeForwarding() {
+		BasicEventList<String> delegate = new BasicEventList<>();
+		PersistentEventList<String> list = new PersistentEventList<>(null, delegate);
+		SourceListener listener = new SourceListener();
+		list.addListEventListener(listener);
+
+		list.dispose();
+		try {
+			delegate.removeListEventListener(list);
+			fail("Still listening to the delegate");
+		} catch (IllegalArgumentException e) {
+			// success
+		}
+		delegate.add("a");
+		assertTrue(listener.sources.isEmpty());
+		assertTrue(list.isRecordedChange(0));
+		list.dispose();
+	}
+
+	@Test
+	public void testDisposedOrderKeys() {
+		UnderlyingPersistentEventList<String> delegate = new UnderlyingPersistentEventList<>();
+		PersistentEventList<String> list = new PersistentEventList<>(null, delegate);
+		list.useOrderKeys(10);
+		list.add("a");
+		list.dispose();
+		delegate.add("b");
+
+		// the keys are spread out again before the rows are inserted
+		list.preInsert(null);
+		final int first = ((Integer) list.getIndex("a", 0, null)).intValue();
+		assertTrue(first < ((Integer) list.getIndex("b", 1, null)).intValue());
+	}
+
+	@Test
+	public void testSerializedListIsConnected() throws Exception {
+		BasicEventList<String> delegate = new BasicEventList<>();
+		PersistentEventList<String> list = new PersistentEventList<>(null, delegate);
+		list.add("a");
+
+		PersistentEventList<String> copy = serializedCopy(list);
+		SourceListener listener = new SourceListener();
+		copy.addListEventListener(listener);
+		copy.add("b");
+		// forwarded once, though the delegate registered the copy itself
+		assertEquals(Arrays.asList(copy), listener.sources);
+		assertTrue(copy.isRecordedChange(1));
+	}
+
+	@Test
+	public void testSerializedDisposedList() throws Exception {
+		BasicEventList<String> delegate = new BasicEventList<>();
+		PersistentEventList<String> list = new PersistentEventList<>(null, delegate);
+		list.dispose();
+
+		PersistentEventList<String> copy = serializedCopy(list);
+		SourceListener listener = new SourceListener();
+		copy.addListEventListener(listener);
+		copy.add("a");
+		assertTrue(listener.sources.isEmpty());
+		assertTrue(copy.isRecordedChange(0));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T serializedCopy(T object) throws IOException, ClassNotFoundException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (T) in.readObject();
+		}
+	}
+
+	@Test
+	public void testDisposeReleases() {
+		UnderlyingPersistentEventList<String> delegate = new UnderlyingPersistentEventList<>();
+		delegate.addAll(Arrays.asList("a", "b"));
+		PersistentEventList<String> list = new PersistentEventList<>(null, delegate);
+		list.useReleaseOnDispose();
+		assertFalse(list.isReleased());
+
+		list.dispose();
+		assertEquals(0, delegate.size());
+		assertTrue(list.isReleased());
+	}
+
+	@Test
+	public void testDisposeOnSessionEnd() {
+		List<SessionEventListener> sessionListeners = new ArrayList<>();
+		SessionEventListenerManager manager = (SessionEventListenerManager) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class<?>[] { SessionEventListenerManager.class },
+				(proxy, method, args) -> {
+					if (method.getName().equals("addListener")) {
+						sessionListeners.addAll(Arrays.asList((SessionEventListener[]) args[0]));
+					}
+					return null;
+				});
+		SharedSessionContractImplementor session = (SharedSessionContractImplementor) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class<?>[] { SharedSessionContractImplementor.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getEventListenerManager":
+						return manager;
+					case "hashCode":
+						return Integer.valueOf(System.identityHashCode(proxy));
+					case "equals":
+						return Boolean.valueOf(proxy == args[0]);
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+
+		UnderlyingPersistentEventList<String> first = new UnderlyingPersistentEventList<>();
+		UnderlyingPersistentEventList<String> second = new UnderlyingPersistentEventList<>();
+		PersistentEventList<String> firstList = new PersistentEventList<>(null, first);
+		PersistentEventList<String> secondList = new PersistentEventList<>(null, second);
+		SessionCloseDisposer.register(session, firstList);
+		SessionCloseDisposer.register(session, secondList);
+		assertEquals(1, sessionListeners.size());
+
+		SourceListener listener = new SourceListener();
+		firstList.addListEventListener(listener);
+		secondList.addListEventListener(listener);
+		sessionListeners.get(0).end();
+		first.add("a");
+		second.add("b");
+		assertTrue(listener.sources.isEmpty());
+	}
+
+	/**
+	 * @return a session whose transaction is in progress while
+	 *         <code>inTransaction[0]</code> is set, and which keeps the
+	 *         synchronizations registered with it
+	 */
+	private SharedSessionContractImplementor transactionSession(boolean[] inTransaction,
+			List<Synchronization> synchronizations) {
+		Transaction transaction = (Transaction) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { Transaction.class }, (proxy, method, args) -> {
+					if (method.getName().equals("registerSynchronization")) {
+						synchronizations.add((Synchronization) args[0]);
+						return null;
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+		return (SharedSessionContractImplementor) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { SharedSessionContractImplementor.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "isTransactionInProgress":
+						return Boolean.valueOf(inTransaction[0]);
+					case "accessTransaction":
+						return transaction;
+					case "hashCode":
+						return Integer.valueOf(System.identityHashCode(proxy));
+					case "equals":
+						return Boolean.valueOf(proxy == args[0]);
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	@Test
+	public void testTransactionEvents() {
+		boolean[] inTransaction = { true };
+		List<Synchronization> synchronizations = new ArrayList<>();
+		UnderlyingPersistentEventList<String> delegate = new UnderlyingPersistentEventList<>();
+		PersistentEventList<String> list = new PersistentEventList<>(
+				transactionSession(inTransaction, synchronizations), delegate);
+		list.useTransactionEvents();
+		MirrorListener<String> listener = new MirrorListener<>(list);
+		list.addListEventListener(listener);
+
+		list.add("a");
+		list.add("b");
+		list.addAll(Arrays.asList("c", "d"));
+		list.remove("b");
+		list.set(0, "e");
+		assertEquals(0, listener.events);
+		assertEquals(1, synchronizations.size());
+		// the changes are recorded for the flush before they are published
+		assertTrue(list.isRecordedChange(0));
+		assertTrue(list.isRecordedChange(2));
+
+		synchronizations.get(0).afterCompletion(Status.STATUS_COMMITTED);
+		assertEquals(1, listener.events);
+		assertEquals(Arrays.asList("e", "c", "d"), listener.mirror);
+
+		// rolled back changes are dropped, but remain in memory, so all
+		// elements are replaced instead
+		list.remove(0);
+		list.add("g");
+		assertEquals(1, listener.events);
+		assertEquals(2, synchronizations.size());
+		final int deletes = listener.deletes;
+		final int inserts = listener.inserts;
+		synchronizations.get(1).afterCompletion(Status.STATUS_ROLLEDBACK);
+		assertEquals(2, listener.events);
+		assertEquals(Arrays.asList("c", "d", "g"), listener.mirror);
+		assertEquals(deletes + 3, listener.deletes);
+		assertEquals(inserts + 3, listener.inserts);
+
+		// reading doesn't open an event
+		list.iterator().next();
+		list.listIterator(1);
+		list.subList(0, 1);
+		assertEquals(2, synchronizations.size());
+
+		inTransaction[0] = false;
+		list.add("f");
+		assertEquals(3, listener.events);
+		assertEquals(2, synchronizations.size());
+	}
+
+	@Test
+	public void testRollbackOfEmptyList() {
+		boolean[] inTransaction = { true };
+		List<Synchronization> synchronizations = new ArrayList<>();
+		PersistentEventList<String> list = new PersistentEventList<>(
+				transactionSession(inTransaction, synchronizations), new UnderlyingPersistentEventList<>());
+		list.useTransactionEvents();
+		MirrorListener<String> listener = new MirrorListener<>(list);
+		list.addListEventListener(listener);
+
+		list.add("a");
+		list.remove(0);
+		synchronizations.get(0).afterCompletion(Status.STATUS_ROLLEDBACK);
+		assertEquals(0, listener.events);
+
+		// the next transaction opens a new event
+		list.add("b");
+		synchronizations.get(1).afterCompletion(Status.STATUS_COMMITTED);
+		assertEquals(1, listener.events);
+		assertEquals(list, listener.mirror);
+	}
+}
@@ -0,0 +1,113 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.type.Type;
+import org.junit.Test;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.hibernate6.UnderlyingPersistentEventListTest.MirrorListener;
+import junit.framework.TestCase;
+
+/**
+ * @author Nathan Hapke
+ */
+public class PersistentEventListTypeTest extends TestCase {
+
+	@Test
+	public void testReplaceElementsLogsWithoutPersister() {
+		final Logger log = Logger.getLogger(PersistentEventListType.class.getName());
+		final Level level = log.getLevel();
+		log.setLevel(Level.FINE);
+		try {
+			EventList<String> original = new BasicEventList<>();
+			original.addAll(Arrays.asList("a", "b", "c"));
+			UnderlyingPersistentEventList<String> target = new UnderlyingPersistentEventList<>();
+			target.addAll(Arrays.asList("a", "x"));
+
+			PersistentEventListType<String> type = new PersistentEventListType<>();
+			assertSame(target, type.replaceElements(original, target, null, null, new HashMap<>(), null));
+			assertEquals(original, target);
+		} finally {
+			log.setLevel(level);
+		}
+	}
+
+	/**
+	 * A mutable component without equals, as Hibernate copies it on merge.
+	 */
+	private static final class Slot {
+		final String name;
+
+		Slot(String name) {
+			this.name = name;
+		}
+	}
+
+	@Test
+	public void testMergeComponentsByPosition() {
+		Type elementType = (Type) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Type.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "isEntityType":
+						return Boolean.FALSE;
+					case "isComponentType":
+						return Boolean.TRUE;
+					case "replace":
+						return new Slot(((Slot) args[0]).name);
+					case "isEqual":
+						return Boolean.valueOf(Objects.equals(((Slot) args[0]).name, ((Slot) args[1]).name));
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+		CollectionPersister persister = (CollectionPersister) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { CollectionPersister.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getElementType":
+						return elementType;
+					case "getRole":
+						return "Board.slots";
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+		SharedSessionContractImplementor session = (SharedSessionContractImplementor) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class<?>[] { SharedSessionContractImplementor.class },
+				(proxy, method, args) -> {
+					throw new UnsupportedOperationException(method.getName());
+				});
+
+		UnderlyingPersistentEventList<Slot> delegate = new UnderlyingPersistentEventList<>();
+		delegate.addAll(Arrays.asList(new Slot("a"), new Slot("b"), new Slot("c")));
+		PersistentEventList<Slot> target = new PersistentEventList<>(null, delegate);
+		List<Slot> before = new ArrayList<>(target);
+		MirrorListener<Slot> listener = new MirrorListener<>(target);
+		target.addListEventListener(listener);
+
+		EventList<Slot> original = new BasicEventList<>();
+		original.addAll(Arrays.asList(new Slot("a"), new Slot("x"), new Slot("c"), new Slot("d")));
+		PersistentEventListType<Slot> type = new PersistentEventListType<>();
+		type.replaceElements(original, target, persister, null, new HashMap<>(), session);
+
+		// only the changed and the appended component, not every copy
+		assertEquals(1, listener.events);
+		assertEquals(1, listener.updates);
+		assertEquals(1, listener.inserts);
+		assertEquals(0, listener.deletes);
+		assertSame(before.get(0), target.get(0));
+		assertEquals("x", target.get(1).name);
+		assertSame(before.get(2), target.get(2));
+		assertEquals("d", target.get(3).name);
+	}
+}
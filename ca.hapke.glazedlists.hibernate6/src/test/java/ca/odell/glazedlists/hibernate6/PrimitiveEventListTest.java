@@ -0,0 +1,219 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import org.hibernate.metamodel.mapping.PluralAttributeMapping;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.junit.Test;
+
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.hibernate6.UnderlyingPersistentEventListTest.MirrorListener;
+import junit.framework.TestCase;
+
+/**
+ * @author Nathan Hapke
+ */
+public class PrimitiveEventListTest extends TestCase {
+
+	@Override
+	protected void tearDown() throws Exception {
+		CategoryEventListFactory.clearCategoryMapping();
+	}
+
+	private static MirrorListener<Integer> listen(IntEventList list) {
+		MirrorListener<Integer> listener = new MirrorListener<>(list);
+		list.addListEventListener(listener);
+		return listener;
+	}
+
+	@Test
+	public void testRandomOperations() {
+		Random random = new Random(3);
+		IntEventList list = new IntEventList();
+		List<Integer> expected = new ArrayList<>();
+		MirrorListener<Integer> listener = listen(list);
+
+		for (int i = 0; i < 2000; i++) {
+			int size = expected.size();
+			Integer value = Integer.valueOf(random.nextInt(50));
+			switch (random.nextInt(6)) {
+			case 0:
+			case 1:
+				int index = random.nextInt(size + 1);
+				list.add(index, value);
+				expected.add(index, value);
+				break;
+			case 2:
+				if (size > 0) {
+					index = random.nextInt(size);
+					assertEquals(expected.remove(index), list.remove(index));
+				}
+				break;
+			case 3:
+				if (size > 0) {
+					index = random.nextInt(size);
+					assertEquals(expected.set(index, value), list.set(index, value));
+				}
+				break;
+			case 4:
+				List<Integer> added = Arrays.asList(value, Integer.valueOf(value.intValue() + 1));
+				index = random.nextInt(size + 1);
+				list.addAll(index, added);
+				expected.addAll(index, added);
+				break;
+			default:
+				List<Integer> removed = Arrays.asList(value, Integer.valueOf(random.nextInt(50)));
+				assertEquals(expected.removeAll(removed), list.removeAll(removed));
+			}
+			assertEquals(expected, list);
+		}
+		assertEquals(expected, listener.mirror);
+	}
+
+	@Test
+	public void testUpdateAllByValue() {
+		IntEventList list = new IntEventList();
+		list.addAll(Arrays.asList(1000, 2000, 3000, 4000));
+		MirrorListener<Integer> listener = listen(list);
+
+		// equal values in new boxes are unchanged
+		List<Integer> input = new ArrayList<>();
+		for (int value : new int[] { 1000, 2500, 3000, 4000, 5000 }) {
+			input.add(Integer.valueOf(value));
+		}
+		assertTrue(list.updateAll(input));
+		assertEquals(input, list);
+		assertEquals(input, listener.mirror);
+		assertEquals(1, listener.updates);
+		assertEquals(1, listener.inserts);
+
+		assertFalse(list.updateAll(new ArrayList<>(input)));
+		assertEquals(1, listener.events);
+	}
+
+	@Test
+	public void testRetainAll() {
+		LongEventList list = new LongEventList();
+		list.addAll(Arrays.asList(1L, 2L, 3L, 4L, 5L));
+		assertTrue(list.retainAll(new HashSet<>(Arrays.asList(2L, 4L))));
+		assertEquals(Arrays.asList(2L, 4L), list);
+		assertEquals(4L, list.getLong(1));
+	}
+
+	@Test
+	public void testHydrateIsSilent() {
+		IntEventList list = new IntEventList();
+		MirrorListener<Integer> listener = listen(list);
+		list.hydrate(Arrays.asList(1, 2, 3));
+		assertEquals(3, list.size());
+		assertEquals(2, list.getInt(1));
+		assertEquals(0, listener.events);
+	}
+
+	@Test
+	public void testNullRejected() {
+		IntEventList list = new IntEventList();
+		try {
+			list.add(null);
+			fail("Stored null");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			list.addAll(Arrays.asList(1, null));
+			fail("Stored null");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(0, list.size());
+	}
+
+	@Test
+	public void testUpdateAllRejectsNull() {
+		IntEventList list = new IntEventList();
+		list.addAll(Arrays.asList(1, 2));
+		MirrorListener<Integer> listener = listen(list);
+		try {
+			list.updateAll(Arrays.asList(3, null));
+			fail("Stored null");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(Arrays.asList(1, 2), list);
+
+		// no event was left open
+		list.add(4);
+		assertEquals(1, listener.events);
+		assertEquals(list, listener.mirror);
+	}
+
+	@Test
+	public void testHydrateRejectsGaps() {
+		IntEventList list = new IntEventList();
+		try {
+			list.hydrate(Arrays.asList(1, null, 3));
+			fail("Stored null");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("order key gap"));
+		}
+		assertEquals(0, list.size());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testLoadGapsWithOrderKeys() {
+		IntEventListType type = new IntEventListType();
+		Properties parameters = new Properties();
+		parameters.setProperty(PersistentEventListType.PROPERTYNAME_EVENTLIST_ORDER_KEY_GAP, "16");
+		type.setParameterValues(parameters);
+		CollectionPersister persister = (CollectionPersister) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { CollectionPersister.class }, (proxy, method, args) -> {
+					throw new UnsupportedOperationException(method.getName());
+				});
+		PluralAttributeMapping mapping = (PluralAttributeMapping) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class<?>[] { PluralAttributeMapping.class },
+				(proxy, method, args) -> {
+					if (method.getName().equals("getCollectionDescriptor")) {
+						return persister;
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+
+		PersistentEventList<Integer> list = (PersistentEventList<Integer>) type.instantiate(null, persister);
+		list.beginRead();
+		list.injectLoadedState(mapping, Arrays.asList(null, 5, null, null, 7));
+		list.endRead();
+		assertEquals(Arrays.asList(5, 7), list);
+		assertEquals(Integer.valueOf(4), list.getIndex(null, 1, persister));
+	}
+
+	@Test
+	public void testDoubleIndexOf() {
+		DoubleEventList list = new DoubleEventList();
+		list.addAll(Arrays.asList(1.5, Double.NaN, -0.0, 0.0));
+		assertEquals(1, list.indexOf(Double.NaN));
+		assertEquals(2, list.indexOf(-0.0));
+		assertEquals(3, list.lastIndexOf(0.0));
+		assertEquals(-1, list.indexOf(Integer.valueOf(1)));
+		assertFalse(list.contains("1.5"));
+	}
+
+	@Test
+	public void testTypeWithCategory() {
+		IntEventListType type = new IntEventListType();
+		Properties parameters = new Properties();
+		parameters.setProperty(PersistentEventListType.PROPERTYNAME_EVENTLIST_CATEGORY, "Numbers");
+		type.setParameterValues(parameters);
+
+		EventList<?> instantiated = (EventList<?>) type.instantiate(100);
+		assertTrue(instantiated instanceof IntEventList);
+		EventList<Object> other = new CategoryEventListFactory<Object>("Numbers").createEventList();
+		assertSame(other.getReadWriteLock(), instantiated.getReadWriteLock());
+	}
+}
@@ -0,0 +1,152 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import ca.odell.glazedlists.hibernate6.UnderlyingPersistentEventListTest.MirrorListener;
+import junit.framework.TestCase;
+
+/**
+ * @author Nathan Hapke
+ */
+public class QueryEventListTest extends TestCase {
+
+	/**
+	 * A query result, identified by its id.
+	 */
+	private static final class Row {
+		final int id;
+		final String name;
+
+		Row(int id, String name) {
+			this.id = id;
+			this.name = name;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Row && ((Row) obj).id == id && ((Row) obj).name.equals(name);
+		}
+
+		@Override
+		public int hashCode() {
+			return id;
+		}
+
+		@Override
+		public String toString() {
+			return id + "=" + name;
+		}
+	}
+
+	private List<Row> results = new ArrayList<>();
+
+	private QueryEventList<Row> createList() {
+		return new QueryEventList<Row>(() -> new ArrayList<>(results), row -> Integer.valueOf(row.id));
+	}
+
+	private void setResults(Row... rows) {
+		results = new ArrayList<>(Arrays.asList(rows));
+	}
+
+	@Test
+	public void testRefreshPublishesOnlyChanges() {
+		setResults(new Row(1, "a"), new Row(2, "b"), new Row(3, "c"), new Row(4, "d"));
+		QueryEventList<Row> list = createList();
+		assertTrue(list.refresh());
+		assertEquals(results, list);
+
+		MirrorListener<Row> listener = new MirrorListener<>(list);
+		list.addListEventListener(listener);
+		Row unchanged = list.get(0);
+
+		// 2 is gone, 3 changed, 5 is new, and all results are new instances
+		setResults(new Row(1, "a"), new Row(3, "C"), new Row(4, "d"), new Row(5, "e"));
+		assertTrue(list.refresh());
+		assertEquals(1, listener.events);
+		assertEquals(1, listener.deletes);
+		assertEquals(1, listener.updates);
+		assertEquals(1, listener.inserts);
+		assertEquals(results, listener.mirror);
+		assertEquals(results, list);
+		assertSame(unchanged, list.get(0));
+
+		setResults(new Row(1, "a"), new Row(3, "C"), new Row(4, "d"), new Row(5, "e"));
+		assertFalse(list.refresh());
+		assertEquals(1, listener.events);
+	}
+
+	@Test
+	public void testKeysAreNotUpdatedPositionally() {
+		setResults(new Row(1, "a"), new Row(2, "b"));
+		QueryEventList<Row> list = createList();
+		list.refresh();
+		MirrorListener<Row> listener = new MirrorListener<>(list);
+		list.addListEventListener(listener);
+
+		setResults(new Row(1, "a"), new Row(3, "b"));
+		assertTrue(list.refresh());
+		assertEquals(0, listener.updates);
+		assertEquals(1, listener.deletes);
+		assertEquals(1, listener.inserts);
+	}
+
+	@Test
+	public void testChangeDetector() {
+		setResults(new Row(1, "a"));
+		QueryEventList<Row> list = createList();
+		list.setChangeDetector((oldRow, newRow) -> false);
+		list.refresh();
+
+		setResults(new Row(1, "changed"));
+		assertFalse(list.refresh());
+		assertEquals("a", list.get(0).name);
+	}
+
+	@Test
+	public void testFailingDetectorDiscardsEvent() {
+		setResults(new Row(1, "a"), new Row(2, "b"));
+		QueryEventList<Row> list = createList();
+		list.refresh();
+		MirrorListener<Row> listener = new MirrorListener<>(list);
+		list.addListEventListener(listener);
+
+		list.setChangeDetector((oldRow, newRow) -> {
+			throw new IllegalStateException("detached");
+		});
+		setResults(new Row(1, "a"), new Row(2, "changed"));
+		try {
+			list.refresh();
+			fail();
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertEquals(0, listener.events);
+		assertEquals("b", list.get(1).name);
+
+		// the next refresh publishes a new event
+		list.setChangeDetector((oldRow, newRow) -> !oldRow.equals(newRow));
+		assertTrue(list.refresh());
+		assertEquals(1, listener.events);
+		assertEquals(list, listener.mirror);
+	}
+
+	@Test
+	public void testScheduledRefresh() throws InterruptedException {
+		setResults(new Row(1, "a"));
+		QueryEventList<Row> list = createList();
+		final CountDownLatch refreshed = new CountDownLatch(1);
+		list.addListEventListener(listChanges -> refreshed.countDown());
+
+		list.refreshEvery(10, TimeUnit.MILLISECONDS);
+		assertTrue(list.isRefreshing());
+		assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+		list.dispose();
+		assertFalse(list.isRefreshing());
+	}
+}
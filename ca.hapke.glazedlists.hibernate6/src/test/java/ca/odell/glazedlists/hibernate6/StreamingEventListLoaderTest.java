@@ -0,0 +1,146 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.hibernate.ScrollableResults;
+import org.junit.Test;
+
+import ca.odell.glazedlists.event.ListEvent;
+import ca.odell.glazedlists.event.ListEventListener;
+import junit.framework.TestCase;
+
+/**
+ * @author Nathan Hapke
+ */
+public class StreamingEventListLoaderTest extends TestCase {
+
+	/**
+	 * Records the inserted and deleted ranges of each event, and how many
+	 * elements the list held at the time. Adjacent changes of the same type
+	 * within one event count as one range.
+	 */
+	private static final class BlockListener implements ListEventListener<Integer> {
+		final List<String> blocks = new ArrayList<>();
+		final List<Integer> inserted = new ArrayList<>();
+		int maxSize = 0;
+
+		@Override
+		public void listChanged(ListEvent<Integer> listChanges) {
+			maxSize = Math.max(maxSize, listChanges.getSourceList().size());
+			int type = -1;
+			int start = 0;
+			int end = 0;
+			while (listChanges.nextBlock()) {
+				final int blockType = listChanges.getType();
+				final int blockStart = listChanges.getBlockStartIndex();
+				if (blockType == type && blockStart == (type == ListEvent.INSERT ? end + 1 : start)) {
+					end += listChanges.getBlockEndIndex() - blockStart + 1;
+				} else {
+					addRange(type, start, end);
+					type = blockType;
+					start = blockStart;
+					end = listChanges.getBlockEndIndex();
+				}
+				if (blockType == ListEvent.INSERT) {
+					for (int i = blockStart; i <= listChanges.getBlockEndIndex(); i++) {
+						inserted.add(listChanges.getSourceList().get(i));
+					}
+				}
+			}
+			addRange(type, start, end);
+		}
+
+		private void addRange(int type, int start, int end) {
+			if (type != -1) {
+				blocks.add((type == ListEvent.INSERT ? "+" : "-") + start + ".." + end);
+			}
+		}
+	}
+
+	private static List<Integer> range(int count) {
+		List<Integer> values = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			values.add(Integer.valueOf(i));
+		}
+		return values;
+	}
+
+	@Test
+	public void testOneInsertBlockPerChunk() {
+		UnderlyingPersistentEventList<Integer> list = new UnderlyingPersistentEventList<>();
+		BlockListener listener = new BlockListener();
+		list.addListEventListener(listener);
+
+		StreamingEventListLoader<Integer> loader = new StreamingEventListLoader<>(list, 4);
+		assertEquals(10, loader.load(range(10).iterator()));
+		assertEquals("[+0..3, +4..7, +8..9]", listener.blocks.toString());
+		assertEquals(range(10), list);
+	}
+
+	@Test
+	public void testStream() {
+		UnderlyingPersistentEventList<Integer> list = new UnderlyingPersistentEventList<>();
+		BlockListener listener = new BlockListener();
+		list.addListEventListener(listener);
+
+		StreamingEventListLoader<Integer> loader = new StreamingEventListLoader<>(list, 5);
+		assertEquals(10, loader.load(IntStream.range(0, 10).boxed()));
+		assertEquals("[+0..4, +5..9]", listener.blocks.toString());
+	}
+
+	@Test
+	public void testScrollableResults() {
+		final List<Integer> rows = range(7);
+		final int[] position = { -1 };
+		final boolean[] closed = { false };
+		@SuppressWarnings("unchecked")
+		ScrollableResults<Integer> results = (ScrollableResults<Integer>) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class<?>[] { ScrollableResults.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "next":
+						return Boolean.valueOf(++position[0] < rows.size());
+					case "get":
+						return rows.get(position[0]);
+					case "close":
+						closed[0] = true;
+						return null;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+
+		UnderlyingPersistentEventList<Integer> list = new UnderlyingPersistentEventList<>();
+		StreamingEventListLoader<Integer> loader = new StreamingEventListLoader<>(list, 3);
+		assertEquals(7, loader.load(results));
+		assertEquals(rows, list);
+		assertFalse(closed[0]);
+	}
+
+	@Test
+	public void testDiscardChunks() {
+		UnderlyingPersistentEventList<Integer> list = new UnderlyingPersistentEventList<>();
+		BlockListener listener = new BlockListener();
+		list.addListEventListener(listener);
+
+		StreamingEventListLoader<Integer> loader = new StreamingEventListLoader<>(list, 4);
+		loader.setDiscardChunks(true);
+		assertEquals(10, loader.load(range(10).iterator()));
+		assertTrue(list.isEmpty());
+		assertEquals(range(10), listener.inserted);
+		assertEquals(4, listener.maxSize);
+	}
+
+	@Test
+	public void testCancel() {
+		UnderlyingPersistentEventList<Integer> list = new UnderlyingPersistentEventList<>();
+		final StreamingEventListLoader<Integer> loader = new StreamingEventListLoader<>(list, 4);
+		list.addListEventListener(listChanges -> loader.cancel());
+
+		assertEquals(4, loader.load(range(10).iterator()));
+		assertTrue(loader.isCancelled());
+		assertEquals(range(4), list);
+	}
+}
@@ -0,0 +1,343 @@
+package ca.odell.glazedlists.hibernate6;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import ca.odell.glazedlists.event.ListEvent;
+import ca.odell.glazedlists.event.ListEventListener;
+import junit.framework.TestCase;
+
+/**
+ * @author Nathan Hapke
+ */
+public class UnderlyingPersistentEventListTest extends TestCase {
+
+	/**
+	 * Replays every ListEvent onto a plain list, and counts the changes.
+	 */
+	protected static class MirrorListener<E> implements ListEventListener<E> {
+		protected final List<E> mirror = new ArrayList<>();
+		protected int events = 0;
+		protected int blocks = 0;
+		protected int inserts = 0;
+		protected int updates = 0;
+		protected int deletes = 0;
+
+		public MirrorListener(List<E> initial) {
+			mirror.addAll(initial);
+		}
+
+		@Override
+		public void listChanged(ListEvent<E> listChanges) {
+			events++;
+			while (listChanges.nextBlock()) {
+				blocks++;
+			}
+			listChanges.reset();
+			while (listChanges.next()) {
+				int index = listChanges.getIndex();
+				switch (listChanges.getType()) {
+				case ListEvent.INSERT:
+					inserts++;
+					mirror.add(index, listChanges.getSourceList().get(index));
+					break;
+				case ListEvent.UPDATE:
+					updates++;
+					mirror.set(index, listChanges.getSourceList().get(index));
+					break;
+				case ListEvent.DELETE:
+					deletes++;
+					mirror.remove(index);
+					break;
+				}
+			}
+		}
+	}
+
+	protected static UnderlyingPersistentEventList<Object> createList(int size) {
+		UnderlyingPersistentEventList<Object> list = new UnderlyingPersistentEventList<>();
+		for (int i = 0; i < size; i++) {
+			list.add(new Object());
+		}
+		return list;
+	}
+
+	protected static MirrorListener<Object> listen(UnderlyingPersistentEventList<Object> list) {
+		MirrorListener<Object> listener = new MirrorListener<>(list);
+		list.addListEventListener(listener);
+		return listener;
+	}
+
+	@Test
+	public void testAddAllMiddle() {
+		UnderlyingPersistentEventList<Object> list = createList(100);
+		MirrorListener<Object> listener = listen(list);
+
+		List<Object> added = Arrays.asList("a", "b", "c", "d");
+		List<Object> expected = new ArrayList<>(list);
+		expected.addAll(40, added);
+
+		assertTrue(list.addAll(40, added));
+		assertEquals(expected, list);
+		assertEquals(expected, listener.mirror);
+		assertEquals(1, listener.events);
+		assertEquals(4, listener.inserts);
+	}
+
+	@Test
+	public void testAddAllEmpty() {
+		UnderlyingPersistentEventList<Object> list = createList(10);
+		MirrorListener<Object> listener = listen(list);
+
+		assertFalse(list.addAll(5, new ArrayList<>()));
+		assertEquals(0, listener.events);
+	}
+
+	@Test
+	public void testHydrate() {
+		UnderlyingPersistentEventList<Object> list = new UnderlyingPersistentEventList<>();
+		MirrorListener<Object> listener = listen(list);
+
+		List<Object> values = Arrays.asList("a", "b", "c");
+		list.hydrate(values);
+		assertEquals(values, list);
+		assertEquals(0, listener.events);
+
+		list.hydrate(Arrays.asList("d"));
+		assertEquals(Arrays.asList("a", "b", "c", "d"), list);
+		assertEquals(0, listener.events);
+	}
+
+	@Test
+	public void testElementIndex() {
+		Random random = new Random(3);
+		String[] pool = { "a", "b", "c", "d", "e", "f", "g", "h", "i", "j" };
+		UnderlyingPersistentEventList<Object> list = new UnderlyingPersistentEventList<>();
+		list.useElementIndex(false);
+		for (int i = 0; i < 3000; i++) {
+			int kind = random.nextInt(7);
+			Object value = pool[random.nextInt(pool.length)];
+			if (kind == 0 || list.isEmpty()) {
+				list.add(value);
+			} else if (kind == 1) {
+				list.add(random.nextInt(list.size() + 1), value);
+			} else if (kind == 2) {
+				list.remove(random.nextInt(list.size()));
+			} else if (kind == 3) {
+				list.set(random.nextInt(list.size()), value);
+			} else if (kind == 4) {
+				list.addAll(random.nextInt(list.size() + 1), Arrays.asList(value, value));
+			} else if (kind == 5) {
+				list.removeAll(Arrays.asList(value));
+			} else {
+				List<Object> input = new ArrayList<>(list);
+				input.add(random.nextInt(input.size() + 1), value);
+				list.updateAll(input);
+			}
+
+			for (String candidate : pool) {
+				assertEquals(list.indexOf(candidate), list.indexOfElement(candidate));
+				assertEquals(list.contains(candidate), list.containsElement(candidate));
+			}
+		}
+	}
+
+	@Test
+	public void testElementIndexByIdentity() {
+		UnderlyingPersistentEventList<Object> list = new UnderlyingPersistentEventList<>();
+		String value = "value";
+		list.add(value);
+		list.useElementIndex(true);
+
+		assertTrue(list.containsElement(value));
+		assertEquals(0, list.indexOfElement(value));
+		assertFalse(list.containsElement(new String(value)));
+	}
+
+	@Test
+	public void testElementIndexConcurrentReads() throws InterruptedException {
+		final UnderlyingPersistentEventList<Object> list = createList(1000);
+		list.useElementIndex(false);
+		final AtomicInteger failures = new AtomicInteger();
+		for (int round = 0; round < 20; round++) {
+			// moves every element, so the next lookups rebuild the positions
+			list.add(0, "head" + round);
+			final CountDownLatch start = new CountDownLatch(1);
+			final Thread[] readers = new Thread[4];
+			for (int t = 0; t < readers.length; t++) {
+				final int offset = t;
+				readers[t] = new Thread(() -> {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					list.getReadWriteLock().readLock().lock();
+					try {
+						for (int i = offset; i < list.size(); i += 7) {
+							if (list.indexOfElement(list.get(i)) != i) {
+								failures.incrementAndGet();
+							}
+						}
+					} finally {
+						list.getReadWriteLock().readLock().unlock();
+					}
+				});
+				readers[t].start();
+			}
+			start.countDown();
+			for (Thread reader : readers) {
+				reader.join();
+			}
+		}
+		assertEquals(0, failures.get());
+	}
+
+	@Test
+	public void testRemoveAll() {
+		UnderlyingPersistentEventList<Object> list = new UnderlyingPersistentEventList<>();
+		list.addAll(Arrays.asList("a", "b", "c", "b", "d", "e", "b", "f"));
+		MirrorListener<Object> listener = listen(list);
+
+		assertTrue(list.removeAll(Arrays.asList("b", "c", "x")));
+		List<Object> expected = Arrays.asList("a", "d", "e", "f");
+		assertEquals(expected, list);
+		assertEquals(expected, listener.mirror);
+		assertEquals(1, listener.events);
+		assertEquals(4, listener.deletes);
+
+		assertFalse(list.removeAll(Arrays.asList("x", "y")));
+		assertEquals(1, listener.events);
+	}
+
+	@Test
+	public void testRetainAll() {
+		UnderlyingPersistentEventList<Object> list = new UnderlyingPersistentEventList<>();
+		list.addAll(Arrays.asList("a", "b", "c", "b", "d", "e", "b", "f"));
+		MirrorListener<Object> listener = listen(list);
+
+		assertTrue(list.retainAll(Arrays.asList("b", "f")));
+		List<Object> expected = Arrays.asList("b", "b", "b", "f");
+		assertEquals(expected, list);
+		assertEquals(expected, listener.mirror);
+		assertEquals(1, listener.events);
+		assertEquals(4, listener.deletes);
+
+		assertFalse(list.retainAll(Arrays.asList("b", "f")));
+		assertEquals(1, listener.events);
+	}
+
+	@Test
+	public void testUpdateAllHeadInsert() {
+		UnderlyingPersistentEventList<Object> list = createList(5000);
+		MirrorListener<Object> listener = listen(list);
+
+		List<Object> input = new ArrayList<>(list);
+		input.add(0, new Object());
+		assertTrue(list.updateAll(input));
+
+		assertEquals(input, list);
+		assertEquals(input, listener.mirror);
+		assertEquals(1, listener.inserts);
+		assertEquals(0, listener.updates);
+		assertEquals(0, listener.deletes);
+	}
+
+	@Test
+	public void testUpdateAllHeadDelete() {
+		UnderlyingPersistentEventList<Object> list = createList(5000);
+		MirrorListener<Object> listener = listen(list);
+
+		List<Object> input = new ArrayList<>(list);
+		input.remove(0);
+		assertTrue(list.updateAll(input));
+
+		assertEquals(input, list);
+		assertEquals(input, listener.mirror);
+		assertEquals(0, listener.inserts);
+		assertEquals(0, listener.updates);
+		assertEquals(1, listener.deletes);
+	}
+
+	@Test
+	public void testUpdateAllReplace() {
+		UnderlyingPersistentEventList<Object> list = createList(10);
+		MirrorListener<Object> listener = listen(list);
+
+		List<Object> input = new ArrayList<>(list);
+		input.set(4, new Object());
+		assertTrue(list.updateAll(input));
+
+		assertEquals(input, listener.mirror);
+		assertEquals(1, listener.updates);
+		assertEquals(1, listener.events);
+	}
+
+	@Test
+	public void testUpdateAllUnchanged() {
+		UnderlyingPersistentEventList<Object> list = createList(10);
+		MirrorListener<Object> listener = listen(list);
+
+		assertFalse(list.updateAll(new ArrayList<>(list)));
+		assertEquals(0, listener.events);
+	}
+
+	@Test
+	public void testUpdateAllEmpty() {
+		UnderlyingPersistentEventList<Object> list = createList(10);
+		MirrorListener<Object> listener = listen(list);
+
+		assertTrue(list.updateAll(new ArrayList<>()));
+		assertTrue(list.isEmpty());
+		assertTrue(listener.mirror.isEmpty());
+	}
+
+	@Test
+	public void testUpdateAllRandom() {
+		Random random = new Random(42);
+		String[] pool = { "a", "b", "c", "d", "e", "f", "g", "h" };
+		for (int iteration = 0; iteration < 2000; iteration++) {
+			UnderlyingPersistentEventList<Object> list = new UnderlyingPersistentEventList<>();
+			int size = random.nextInt(30);
+			for (int i = 0; i < size; i++) {
+				list.add(pool[random.nextInt(pool.length)]);
+			}
+			MirrorListener<Object> listener = listen(list);
+
+			List<Object> input = new ArrayList<>(list);
+			for (int edits = random.nextInt(6); edits > 0; edits--) {
+				int kind = random.nextInt(3);
+				if (kind == 0 || input.isEmpty()) {
+					input.add(random.nextInt(input.size() + 1), pool[random.nextInt(pool.length)]);
+				} else if (kind == 1) {
+					input.remove(random.nextInt(input.size()));
+				} else {
+					input.set(random.nextInt(input.size()), pool[random.nextInt(pool.length)]);
+				}
+			}
+			list.updateAll(input);
+
+			assertEquals(input, list);
+			assertEquals(input, listener.mirror);
+		}
+	}
+
+	@Test
+	public void testUpdateAllShuffled() {
+		List<Object> values = new ArrayList<>(Arrays.asList("a", "b", "c", "d", "e"));
+		UnderlyingPersistentEventList<Object> list = new UnderlyingPersistentEventList<>();
+		list.addAll(values);
+		MirrorListener<Object> listener = listen(list);
+
+		List<Object> input = Arrays.asList("e", "d", "c", "b", "a");
+		assertTrue(list.updateAll(input));
+		assertEquals(input, list);
+		assertEquals(input, listener.mirror);
+	}
+}
@@ -0,0 +1,99 @@
+package ca.odell.glazedlists.hibernate6.model;
+
+import java.io.Serializable;
+import java.util.List;
+
+import ca.odell.glazedlists.BasicEventList;
+
+/**
+ * Helper class with collections mapped by the less common options of the
+ * collection type.
+ *
+ * @author Nathan Hapke
+ */
+public class Board implements Serializable {
+
+	private static final long serialVersionUID = 0L;
+
+	/** Id. */
+	private Long id;
+
+	private String name;
+
+	/** Tasks, persisted with sparse list-index values. */
+	private List<String> tasks;
+
+	/** Notes, whose changes are published when the transaction completes. */
+	private List<String> notes;
+
+	/** Contacts, stored as the identifiers of their entities. */
+	private List<Email> contacts;
+
+	/** Cards, which own the association and keep their positions. */
+	private List<Card> cards;
+
+	/**
+	 * Default constructor for hibernate.
+	 */
+	public Board() {
+	}
+
+	/**
+	 * Constructor with name.
+	 */
+	public Board(String name) {
+		this.name = name;
+		this.tasks = new BasicEventList<>();
+		this.notes = new BasicEventList<>();
+		this.contacts = new BasicEventList<>();
+		this.cards = new BasicEventList<>();
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public List<String> getTasks() {
+		return tasks;
+	}
+
+	public void setTasks(List<String> tasks) {
+		this.tasks = tasks;
+	}
+
+	public List<String> getNotes() {
+		return notes;
+	}
+
+	public void setNotes(List<String> notes) {
+		this.notes = notes;
+	}
+
+	public List<Email> getContacts() {
+		return contacts;
+	}
+
+	public void setContacts(List<Email> contacts) {
+		this.contacts = contacts;
+	}
+
+	public List<Card> getCards() {
+		return cards;
+	}
+
+	public void setCards(List<Card> cards) {
+		this.cards = cards;
+	}
+}
@@ -0,0 +1,69 @@
+package ca.odell.glazedlists.hibernate6.model;
+
+import java.io.Serializable;
+
+/**
+ * Helper class for a card of a {@link Board}, the owner of their association.
+ *
+ * @author Nathan Hapke
+ */
+public class Card implements Serializable {
+
+	private static final long serialVersionUID = 0L;
+
+	/** Id. */
+	private Long id;
+
+	private String title;
+
+	private Board board;
+
+	/** The position in the board's cards, as written by their inverse list. */
+	private int position;
+
+	/**
+	 * Default constructor for hibernate.
+	 */
+	Card() {
+	}
+
+	/**
+	 * Constructor with board and title.
+	 */
+	public Card(Board board, String title) {
+		this.board = board;
+		this.title = title;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	public Board getBoard() {
+		return board;
+	}
+
+	public void setBoard(Board board) {
+		this.board = board;
+	}
+
+	public int getPosition() {
+		return position;
+	}
+
+	public void setPosition(int position) {
+		this.position = position;
+	}
+}
@@ -8,7 +8,7 @@ import org.junit.runners.Suite.SuiteClasses;
  * @author Nathan Hapke
  */
 @RunWith(Suite.class)
-@SuiteClasses({ BasicUserTest.class, UserAndEmailsTest.class, UserAndFieldsTest.class })
+@SuiteClasses({ BasicUserTest.class, UserAndEmailsTest.class, UserAndFieldsTest.class, BoardTest.class })
 public class AllUserTests {
 
 }
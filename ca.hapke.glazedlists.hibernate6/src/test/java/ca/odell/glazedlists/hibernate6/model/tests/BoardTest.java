@@ -0,0 +1,372 @@
+package ca.odell.glazedlists.hibernate6.model.tests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.junit.Test;
+
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.event.ListEvent;
+import ca.odell.glazedlists.event.ListEventListener;
+import ca.odell.glazedlists.hibernate6.GapOrderedEventListType;
+import ca.odell.glazedlists.hibernate6.QueryEventList;
+import ca.odell.glazedlists.hibernate6.model.Board;
+import ca.odell.glazedlists.hibernate6.model.Card;
+import ca.odell.glazedlists.hibernate6.model.Email;
+
+/**
+ * @author Nathan Hapke
+ */
+public class BoardTest extends AbstractUserTest {
+	/**
+	 * Counts the events and inserts of a list.
+	 */
+	private static final class CountingListener implements ListEventListener<Object> {
+		int events = 0;
+		int inserts = 0;
+
+		@Override
+		public void listChanged(ListEvent<Object> listChanges) {
+			events++;
+			while (listChanges.next()) {
+				if (listChanges.getType() == ListEvent.INSERT) {
+					inserts++;
+				}
+			}
+		}
+	}
+
+	public BoardTest(QueryType mode) {
+		super(mode);
+	}
+
+	/**
+	 * Persists a new board with the given tasks.
+	 *
+	 * @return the board's id
+	 */
+	private Long persistBoard(String... tasks) {
+		Session s = openSession();
+		Transaction t = s.beginTransaction();
+		Board board = new Board("board" + randomInt());
+		board.getTasks().addAll(Arrays.asList(tasks));
+		s.persist(board);
+		t.commit();
+		s.close();
+		return board.getId();
+	}
+
+	/**
+	 * Persists a new board with cards of the given titles.
+	 *
+	 * @return the board's id
+	 */
+	private Long persistCards(String... titles) {
+		Session s = openSession();
+		Transaction t = s.beginTransaction();
+		Board board = new Board("board" + randomInt());
+		for (int i = 0; i < titles.length; i++) {
+			board.getCards().add(new Card(board, titles[i]));
+		}
+		s.persist(board);
+		for (Card card : board.getCards()) {
+			s.persist(card);
+		}
+		t.commit();
+		s.close();
+		return board.getId();
+	}
+
+	/**
+	 * @return the addresses of the contacts, in order
+	 */
+	private static List<String> addresses(List<Email> contacts) {
+		List<String> result = new ArrayList<>();
+		for (Email contact : contacts) {
+			result.add(contact.getAddress());
+		}
+		return result;
+	}
+
+	/**
+	 * @return the persisted list-index values of the board's tasks, ascending
+	 */
+	private List<Integer> loadTaskOrder(Session s, Long id) {
+		return s.createNativeQuery("SELECT TASK_ORDER FROM BOARD_TASK WHERE BOARD_ID = :id ORDER BY TASK_ORDER",
+				Integer.class).setParameter("id", id).getResultList();
+	}
+
+	@Test
+	public void testQueueKeepsListIndexBounded() {
+		final Long id = persistBoard("t0", "t1", "t2");
+		{
+			log("Using the tasks as a queue");
+			Session s2 = openSession();
+			Transaction t2 = s2.beginTransaction();
+			List<String> tasks = s2.get(Board.class, id).getTasks();
+			for (int i = 3; i < 300; i++) {
+				tasks.add("t" + i);
+				tasks.remove(0);
+				s2.flush();
+			}
+			t2.commit();
+			s2.close();
+		}
+		{
+			log("Checking the persisted list-index values");
+			Session s3 = openSession();
+			Transaction t3 = s3.beginTransaction();
+			List<Integer> order = loadTaskOrder(s3, id);
+			assertEquals(3, order.size());
+			final int largest = order.get(2).intValue();
+			assertTrue("largest list-index " + largest, largest <= 4 * GapOrderedEventListType.DEFAULT_GAP * 4);
+
+			Board board = s3.get(Board.class, id);
+			assertEquals(Arrays.asList("t297", "t298", "t299"), board.getTasks());
+			s3.remove(board);
+			t3.commit();
+			s3.close();
+		}
+	}
+
+	@Test
+	public void testEntityReferencesWhileDetached() {
+		final Long id;
+		final List<String> expected = new ArrayList<>();
+		{
+			log("Persisting a board with contacts");
+			Session s1 = openSession();
+			Transaction t1 = s1.beginTransaction();
+			Board board = new Board("board" + randomInt());
+			for (int i = 0; i < 20; i++) {
+				board.getContacts().add(new Email("contact" + i + "@board.ca"));
+				expected.add("contact" + i + "@board.ca");
+			}
+			s1.persist(board);
+			t1.commit();
+			s1.close();
+			id = board.getId();
+		}
+		final Board detached;
+		{
+			log("Loading the contacts, and closing the session");
+			Session s2 = openSession();
+			detached = s2.get(Board.class, id);
+			Hibernate.initialize(detached.getContacts());
+			assertEquals(expected.get(0), detached.getContacts().get(0).getAddress());
+			s2.close();
+		}
+		{
+			log("Using the detached contacts");
+			List<Email> contacts = detached.getContacts();
+			assertEquals(expected, addresses(contacts));
+			Email contact = contacts.get(12);
+			assertEquals(12, contacts.indexOf(contact));
+			assertTrue(contacts.contains(contact));
+			assertTrue(contacts.remove(contact));
+			expected.remove(12);
+			contacts.add(0, contacts.remove(18));
+			expected.add(0, expected.remove(18));
+			assertEquals(expected, addresses(contacts));
+		}
+		{
+			log("Merging the detached board");
+			Session s3 = openSession();
+			Transaction t3 = s3.beginTransaction();
+			s3.merge(detached);
+			t3.commit();
+			s3.close();
+		}
+		{
+			log("Checking the merged contacts");
+			Session s4 = openSession();
+			Transaction t4 = s4.beginTransaction();
+			Board board = s4.get(Board.class, id);
+			assertEquals(expected, addresses(board.getContacts()));
+			s4.remove(board);
+			t4.commit();
+			s4.close();
+		}
+	}
+
+	@Test
+	public void testPagesAfterFlush() {
+		final Long id = persistCards("c0", "c1", "c2", "c3", "c4");
+		Session s2 = openSession();
+		Transaction t2 = s2.beginTransaction();
+		Board board = s2.get(Board.class, id);
+		List<Card> cards = board.getCards();
+		log("Reading the short last page");
+		assertEquals("c4", cards.get(4).getTitle());
+		assertEquals("c0", cards.get(0).getTitle());
+
+		log("Reading a page while an entity is changed");
+		cards.get(0).setTitle("x0");
+		assertEquals("c2", cards.get(2).getTitle());
+		assertTrue("the page query flushed the session", s2.isDirty());
+
+		log("Appending a card, and flushing the queued add");
+		Card appended = new Card(board, "c5");
+		s2.persist(appended);
+		cards.add(appended);
+		s2.flush();
+		assertEquals(6, cards.size());
+		assertEquals("c5", cards.get(5).getTitle());
+
+		assertEquals("c4", cards.get(4).getTitle());
+		assertFalse(Hibernate.isInitialized(cards));
+		t2.commit();
+		s2.close();
+	}
+
+	@Test
+	public void testQueuedAddsAreOneEvent() {
+		final Long id = persistCards("c0", "c1");
+		Session s2 = openSession();
+		Transaction t2 = s2.beginTransaction();
+		Board board = s2.get(Board.class, id);
+		List<Card> cards = board.getCards();
+		CountingListener listener = new CountingListener();
+		((EventList<Card>) cards).addListEventListener(listener);
+
+		log("Appending to the inverse list, which queues the adds");
+		for (int i = 2; i < 4; i++) {
+			Card card = new Card(board, "c" + i);
+			s2.persist(card);
+			cards.add(card);
+		}
+		assertFalse(Hibernate.isInitialized(cards));
+		assertEquals(0, listener.events);
+
+		log("Initializing the list, which replays them");
+		Hibernate.initialize(cards);
+		assertEquals(1, listener.events);
+		assertEquals(2, listener.inserts);
+		List<String> titles = new ArrayList<>();
+		for (Card card : cards) {
+			titles.add(card.getTitle());
+		}
+		assertEquals(Arrays.asList("c0", "c1", "c2", "c3"), titles);
+		t2.commit();
+		s2.close();
+
+		log("Checking the positions written for the replayed adds");
+		Session s3 = openSession();
+		Transaction t3 = s3.beginTransaction();
+		assertEquals(Arrays.asList("c0:0", "c1:1", "c2:2", "c3:3"),
+				s3.createNativeQuery("SELECT TITLE || ':' || CARD_ORDER FROM CARD WHERE BOARD_ID = :id ORDER BY CARD_ORDER",
+						String.class).setParameter("id", id).getResultList());
+		t3.commit();
+		s3.close();
+	}
+
+	@Test
+	public void testQueryRefreshComparesEntityState() {
+		final String prefix = "query" + randomInt() + "-";
+		final Long id = persistBoard();
+		{
+			Session s1 = openSession();
+			Transaction t1 = s1.beginTransaction();
+			s1.get(Board.class, id).setName(prefix + "a");
+			t1.commit();
+			s1.close();
+		}
+		QueryEventList<Board> boards = new QueryEventList<>(getSessions(),
+				"from Board where name like '" + prefix + "%' order by id", Board.class, Board::getId);
+		assertTrue(boards.refresh());
+
+		log("Refreshing unchanged entities, which are new instances");
+		assertFalse(boards.refresh());
+
+		log("Refreshing a renamed entity");
+		{
+			Session s2 = openSession();
+			Transaction t2 = s2.beginTransaction();
+			s2.get(Board.class, id).setName(prefix + "b");
+			t2.commit();
+			s2.close();
+		}
+		assertTrue(boards.refresh());
+		assertEquals(prefix + "b", boards.get(0).getName());
+		boards.dispose();
+	}
+
+	@Test
+	public void testTransactionEventsAreWritten() {
+		final Long id = persistBoard();
+		{
+			log("Changing the notes in a transaction");
+			Session s2 = openSession();
+			Transaction t2 = s2.beginTransaction();
+			List<String> notes = s2.get(Board.class, id).getNotes();
+			CountingListener listener = new CountingListener();
+			((EventList<String>) notes).addListEventListener(listener);
+			notes.add("n0");
+			notes.add("n1");
+			notes.add(0, "n2");
+			notes.remove("n1");
+			s2.flush();
+			assertEquals(0, listener.events);
+			notes.add("n3");
+			t2.commit();
+			assertEquals(1, listener.events);
+			assertEquals(3, listener.inserts);
+			s2.close();
+		}
+		{
+			log("Checking the committed notes");
+			Session s3 = openSession();
+			Transaction t3 = s3.beginTransaction();
+			Board board = s3.get(Board.class, id);
+			assertEquals(Arrays.asList("n2", "n0", "n3"), board.getNotes());
+			s3.remove(board);
+			t3.commit();
+			s3.close();
+		}
+	}
+
+	@Test
+	public void testTransactionEventsOfRollback() {
+		final Long id = persistBoard();
+		{
+			log("Committing the notes");
+			Session s1 = openSession();
+			Transaction t1 = s1.beginTransaction();
+			s1.get(Board.class, id).getNotes().addAll(Arrays.asList("n0", "n1"));
+			t1.commit();
+			s1.close();
+		}
+		{
+			log("Rolling back changes of the notes");
+			Session s2 = openSession();
+			Transaction t2 = s2.beginTransaction();
+			List<String> notes = s2.get(Board.class, id).getNotes();
+			assertEquals(2, notes.size());
+			CountingListener listener = new CountingListener();
+			((EventList<String>) notes).addListEventListener(listener);
+			notes.add("n2");
+			notes.remove("n0");
+			s2.flush();
+			t2.rollback();
+			// the changes are dropped, and the elements in memory replace all
+			assertEquals(1, listener.events);
+			assertEquals(2, listener.inserts);
+			assertEquals(Arrays.asList("n1", "n2"), notes);
+			s2.close();
+		}
+		{
+			log("Checking the committed notes");
+			Session s3 = openSession();
+			Transaction t3 = s3.beginTransaction();
+			Board board = s3.get(Board.class, id);
+			assertEquals(Arrays.asList("n0", "n1"), board.getNotes());
+			s3.remove(board);
+			t3.commit();
+			s3.close();
+		}
+	}
+}
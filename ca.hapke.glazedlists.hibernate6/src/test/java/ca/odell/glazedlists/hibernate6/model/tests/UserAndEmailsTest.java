@@ -1,12 +1,18 @@
 package ca.odell.glazedlists.hibernate6.model.tests;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.Hibernate;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
+import org.hibernate.stat.Statistics;
 import org.junit.Test;
 
+import ca.odell.glazedlists.BasicEventList;
 import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.event.ListEvent;
+import ca.odell.glazedlists.event.ListEventListener;
 import ca.odell.glazedlists.hibernate6.model.Email;
 import ca.odell.glazedlists.hibernate6.model.User;
 import jakarta.persistence.EntityManager;
@@ -18,6 +24,33 @@ import jakarta.persistence.NoResultException;
  * @author Nathan Hapke
  */
 public class UserAndEmailsTest extends AbstractUserTest {
+	/**
+	 * Counts the events and changes of a list.
+	 */
+	private static final class CountingListener implements ListEventListener<Email> {
+		int events = 0;
+		int inserts = 0;
+		int updates = 0;
+		int deletes = 0;
+
+		@Override
+		public void listChanged(ListEvent<Email> listChanges) {
+			events++;
+			while (listChanges.next()) {
+				switch (listChanges.getType()) {
+				case ListEvent.INSERT:
+					inserts++;
+					break;
+				case ListEvent.UPDATE:
+					updates++;
+					break;
+				default:
+					deletes++;
+				}
+			}
+		}
+	}
+
 	public UserAndEmailsTest(QueryType mode) {
 		super(mode);
 	}
@@ -151,5 +184,111 @@ public class UserAndEmailsTest extends AbstractUserTest {
 		}
 	}
 
+	/**
+	 * Merges the detached user in a new session, counting the events of the
+	 * managed emails and the SQL updates.
+	 *
+	 * @return the number of SQL updates written
+	 */
+	private int mergeEmails(User detached, CountingListener listener) {
+		final List<String> sql = new ArrayList<>();
+		Session s = getSessions().withOptions().statementInspector(statement -> {
+			sql.add(statement);
+			return statement;
+		}).openSession();
+		Transaction t = s.beginTransaction();
+		User managed = s.get(User.class, detached.getId());
+		Hibernate.initialize(managed.getEmailAddresses());
+		((EventList<Email>) managed.getEmailAddresses()).addListEventListener(listener);
+		sql.clear();
+		s.merge(detached);
+		t.commit();
+		s.close();
 
+		int updates = 0;
+		for (String statement : sql) {
+			if (statement.trim().toLowerCase().startsWith("update")) {
+				updates++;
+			}
+		}
+		return updates;
+	}
+
+	@Test
+	public void testMergeReorderedEmails() {
+		randomize();
+		final int size = 6;
+		final Long id;
+		{
+			log("Persisting a user with emails");
+			Session s1 = openSession();
+			Transaction t1 = s1.beginTransaction();
+			User u1 = new User(getUsername());
+			u1.setEmailAddresses(new BasicEventList<Email>());
+			for (int i = 0; i < size; i++) {
+				u1.getEmailAddresses().add(new Email(i + getEmailAddr()));
+			}
+			s1.persist(u1);
+			t1.commit();
+			s1.close();
+			id = u1.getId();
+		}
+		final User detached;
+		{
+			log("Loading the user, and closing the session");
+			Session s2 = openSession();
+			EntityManager em2 = s2.getEntityManagerFactory().createEntityManager();
+			List<User> users2 = loadUser(em2, getUsername());
+			assertEquals(1, users2.size());
+			detached = users2.get(0);
+			Hibernate.initialize(detached.getEmailAddresses());
+			em2.close();
+			s2.close();
+		}
+		final Statistics statistics = getSessions().getStatistics();
+		statistics.setStatisticsEnabled(true);
+		{
+			log("Merging the unchanged user");
+			statistics.clear();
+			CountingListener listener = new CountingListener();
+			assertEquals(0, mergeEmails(detached, listener));
+			assertEquals(0, listener.events);
+			assertEquals(0, statistics.getEntityUpdateCount());
+			assertEquals(0, statistics.getCollectionUpdateCount());
+		}
+		final List<String> expected = new ArrayList<>();
+		{
+			log("Merging the user with its last email moved to the front");
+			List<Email> emails = detached.getEmailAddresses();
+			emails.add(0, emails.remove(size - 1));
+			for (Email email : emails) {
+				expected.add(email.getAddress());
+			}
+			statistics.clear();
+			CountingListener listener = new CountingListener();
+			final int updates = mergeEmails(detached, listener);
+			assertEquals(1, listener.events);
+			assertEquals(1, listener.inserts);
+			assertEquals(1, listener.deletes);
+			assertEquals(0, listener.updates);
+			// only the list-index and key columns of the email rows are written
+			assertEquals(0, statistics.getEntityUpdateCount());
+			assertEquals(1, statistics.getCollectionUpdateCount());
+			assertTrue("updates " + updates, updates > 0 && updates <= 2 * size);
+		}
+		{
+			log("Checking the merged order");
+			Session s4 = openSession();
+			Transaction t4 = s4.beginTransaction();
+			User u4 = s4.get(User.class, id);
+			List<String> addresses = new ArrayList<>();
+			for (Email email : u4.getEmailAddresses()) {
+				addresses.add(email.getAddress());
+			}
+			assertEquals(expected, addresses);
+			s4.remove(u4);
+			t4.commit();
+			s4.close();
+		}
+	}
 }